@@ -17,6 +17,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.eclipsefoundation.git.eca.model.EclipseUser;
 
@@ -31,6 +32,7 @@ import org.eclipsefoundation.git.eca.model.EclipseUser;
  */
 @Path("/account")
 @RegisterRestClient
+@RegisterProvider(ClientMetricsFilter.class)
 public interface AccountsAPI {
 
 	/**
@@ -46,4 +48,17 @@ public interface AccountsAPI {
 	@Produces("application/json")
 	List<EclipseUser> getUsers(@HeaderParam("Authorization") String authBearer, @QueryParam("uid") String id,
 			@QueryParam("name") String name, @QueryParam("mail") String mail);
+
+	/**
+	 * Retrieves all user objects that match any of the given email addresses in a
+	 * single call.
+	 * 
+	 * @param mails the email addresses to match against for Eclipse accounts
+	 * @return all matching eclipse accounts
+	 */
+	@GET
+	@Path("/profile")
+	@Produces("application/json")
+	List<EclipseUser> getUsersByMail(@HeaderParam("Authorization") String authBearer,
+			@QueryParam("mail") List<String> mails);
 }
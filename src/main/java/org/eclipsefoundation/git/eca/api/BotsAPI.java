@@ -15,6 +15,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.eclipsefoundation.git.eca.model.BotUser;
 
@@ -26,6 +27,7 @@ import org.eclipsefoundation.git.eca.model.BotUser;
  */
 @Path("/bots")
 @RegisterRestClient
+@RegisterProvider(ClientMetricsFilter.class)
 public interface BotsAPI {
 	
 	/**
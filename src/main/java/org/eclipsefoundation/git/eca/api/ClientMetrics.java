@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.api;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.eclipsefoundation.git.eca.helper.HistogramReservoir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.quarkus.arc.Unremovable;
+import io.smallrye.metrics.app.TimerImpl;
+
+/**
+ * <p>
+ * Records metrics for the calls made through the REST clients, fed by the
+ * {@linkplain ClientMetricsFilter}. Calls are attributed to the API interface
+ * that made them, and latency is recorded per API and response status, along
+ * with the number of bytes received and the calls awaiting a response. Calls
+ * taking longer than <code>client.slow.threshold.ms</code> are logged.
+ * </p>
+ *
+ * <p>
+ * Client filters are not called when a call fails before a response is
+ * received, such as on a connection error or read timeout. Calls made through
+ * {@link #record(Supplier)} are recorded as unanswered as soon as they fail,
+ * with their latency recorded under the <code>error</code> status. Any other
+ * call stops being counted as in flight once
+ * <code>client.inflight.timeout.ms</code> has passed, and is then counted as
+ * unanswered.
+ * </p>
+ *
+ * <p>
+ * As the bean is only looked up by the filter, it is marked as unremovable so
+ * that it is not removed from the application at build time.
+ * </p>
+ *
+ * @author Martin Lowe
+ *
+ */
+@Unremovable
+@ApplicationScoped
+public class ClientMetrics {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClientMetrics.class);
+
+	// set by the MicroProfile rest client on each request
+	static final String INVOKED_METHOD_PROPERTY = "org.eclipse.microprofile.rest.client.invokedMethod";
+	private static final String START_PROPERTY = ClientMetrics.class.getName() + ".start";
+
+	@Inject
+	MetricRegistry registry;
+
+	@ConfigProperty(name = "client.slow.threshold.ms", defaultValue = "1000")
+	long slowThreshold;
+	@ConfigProperty(name = "client.inflight.timeout.ms", defaultValue = "60000")
+	long inFlightTimeout;
+	@ConfigProperty(name = "metrics.histogram.window.seconds", defaultValue = "60")
+	long histogramWindow;
+	@ConfigProperty(name = "metrics.histogram.windows", defaultValue = "5")
+	int histogramWindows;
+
+	private final ConcurrentMap<String, ApiMetrics> apis = new ConcurrentHashMap<>();
+	// the last call started on the current thread, for calls made through record
+	private final ThreadLocal<ClientRequestContext> current = new ThreadLocal<>();
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Schedules the removal of the calls that have been in flight for longer than
+	 * the in flight timeout.
+	 */
+	@PostConstruct
+	void init() {
+		this.scheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("eca-client-metrics").setDaemon(true).build());
+		scheduler.scheduleWithFixedDelay(this::expire, inFlightTimeout, inFlightTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * Makes a call through a REST client. If the call throws before a response
+	 * was received, it is recorded as unanswered straight away rather than once
+	 * the in flight timeout has passed.
+	 *
+	 * @param <T>  the type returned by the call
+	 * @param call the call to make
+	 * @return the value returned by the call
+	 */
+	public <T> T record(Supplier<T> call) {
+		try {
+			return call.get();
+		} catch (RuntimeException e) {
+			failed(e);
+			throw e;
+		} finally {
+			current.remove();
+		}
+	}
+
+	/**
+	 * Marks the start of a call.
+	 *
+	 * @param request the outgoing request
+	 */
+	void started(ClientRequestContext request) {
+		long start = System.nanoTime();
+		request.setProperty(START_PROPERTY, start);
+		getApi(getApiName(request)).pending.put(request, start);
+		current.set(request);
+	}
+
+	/**
+	 * Records the latency, status and size of a completed call.
+	 *
+	 * @param request  the outgoing request
+	 * @param response the response received for the request
+	 */
+	void completed(ClientRequestContext request, ClientResponseContext response) {
+		Object start = request.getProperty(START_PROPERTY);
+		if (!(start instanceof Long)) {
+			return;
+		}
+		long elapsed = System.nanoTime() - (Long) start;
+		String name = getApiName(request);
+		ApiMetrics api = getApi(name);
+		api.pending.remove(request);
+		current.remove();
+		api.getTimer(Integer.toString(response.getStatus())).update(elapsed, TimeUnit.NANOSECONDS);
+		if (response.hasEntity()) {
+			response.setEntityStream(new CountingInputStream(response.getEntityStream(), api.bytes));
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+		if (elapsedMillis >= slowThreshold) {
+			LOGGER.warn("Slow call to {}: {} {} returned {} after {}ms", name, request.getMethod(),
+					request.getUri().getPath(), response.getStatus(), elapsedMillis);
+		}
+	}
+
+	/**
+	 * Records the latency of the last call started on the current thread if it
+	 * failed before a response was received. Calls that received a response were
+	 * already recorded by {@link #completed}.
+	 *
+	 * @param e the exception thrown by the call
+	 */
+	private void failed(RuntimeException e) {
+		ClientRequestContext request = current.get();
+		if (request == null) {
+			return;
+		}
+		String name = getApiName(request);
+		ApiMetrics api = getApi(name);
+		Long start = api.pending.remove(request);
+		if (start == null) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		api.unanswered.inc();
+		api.getTimer("error").update(elapsed, TimeUnit.NANOSECONDS);
+		LOGGER.warn("Call to {} failed: {} {} after {}ms: {}", name, request.getMethod(), request.getUri().getPath(),
+				TimeUnit.NANOSECONDS.toMillis(elapsed), e.toString());
+	}
+
+	/**
+	 * Removes the calls that have been in flight for longer than the in flight
+	 * timeout, counting them as unanswered.
+	 */
+	private void expire() {
+		long now = System.nanoTime();
+		for (ApiMetrics api : apis.values()) {
+			api.expire(now);
+		}
+	}
+
+	/**
+	 * Retrieves the name of the API that made the request, using the name of the
+	 * rest client interface when available and the host otherwise.
+	 *
+	 * @param request the outgoing request
+	 * @return the name of the API
+	 */
+	private static String getApiName(ClientRequestContext request) {
+		Object method = request.getProperty(INVOKED_METHOD_PROPERTY);
+		if (method instanceof Method) {
+			return ((Method) method).getDeclaringClass().getSimpleName();
+		}
+		return request.getUri().getHost();
+	}
+
+	private ApiMetrics getApi(String name) {
+		return apis.computeIfAbsent(name, ApiMetrics::new);
+	}
+
+	/**
+	 * Metrics for the calls made to a single API.
+	 */
+	private class ApiMetrics {
+		final String name;
+		final Counter bytes;
+		final Counter unanswered;
+		final ConcurrentMap<ClientRequestContext, Long> pending = new ConcurrentHashMap<>();
+		final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+		ApiMetrics(String name) {
+			this.name = name;
+			Tag tag = new Tag("api", name);
+			this.bytes = registry.counter(Metadata.builder().withName("client.bytes.received")
+					.withType(MetricType.COUNTER).withUnit(MetricUnits.BYTES)
+					.withDescription("Number of bytes received from the API").build(), tag);
+			this.unanswered = registry.counter(Metadata.builder().withName("client.calls.unanswered")
+					.withType(MetricType.COUNTER)
+					.withDescription("Number of calls to the API that failed before a response was received").build(),
+					tag);
+			registry.register(Metadata.builder().withName("client.calls.inflight").withType(MetricType.GAUGE)
+					.withDescription("Number of calls to the API awaiting a response").build(), (Gauge<Integer>) () -> {
+						expire(System.nanoTime());
+						return pending.size();
+					}, tag);
+		}
+
+		Timer getTimer(String status) {
+			return timers.computeIfAbsent(status,
+					s -> registry.register(Metadata.builder().withName("client.call.time").withType(MetricType.TIMER)
+							.withUnit(MetricUnits.NANOSECONDS).withDescription("Time taken by calls to the API").build(),
+							new TimerImpl(new HistogramReservoir(histogramWindow, TimeUnit.SECONDS, histogramWindows)),
+							new Tag("api", name), new Tag("status", s)));
+		}
+
+		/**
+		 * Removes the calls that have been waiting on a response for longer than the
+		 * in flight timeout.
+		 *
+		 * @param now the current time in nanoseconds
+		 */
+		void expire(long now) {
+			long timeout = TimeUnit.MILLISECONDS.toNanos(inFlightTimeout);
+			Iterator<Map.Entry<ClientRequestContext, Long>> it = pending.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<ClientRequestContext, Long> e = it.next();
+				if (now - e.getValue() > timeout && pending.remove(e.getKey(), e.getValue())) {
+					unanswered.inc();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes read from a response entity.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private final Counter counter;
+
+		CountingInputStream(InputStream in, Counter counter) {
+			super(in);
+			this.counter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				counter.inc();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				counter.inc(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			if (skipped > 0) {
+				counter.inc(skipped);
+			}
+			return skipped;
+		}
+	}
+}
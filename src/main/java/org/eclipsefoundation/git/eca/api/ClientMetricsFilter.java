@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.api;
+
+import javax.enterprise.inject.spi.CDI;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/**
+ * Client filter passing the calls made through a REST client to the
+ * {@linkplain ClientMetrics}. Registered on the API interfaces using
+ * <code>@RegisterProvider</code>, so instances are not managed by CDI and look
+ * up the metrics bean on first use.
+ *
+ * @author Martin Lowe
+ *
+ */
+public class ClientMetricsFilter implements ClientRequestFilter, ClientResponseFilter {
+	private volatile ClientMetrics metrics;
+
+	@Override
+	public void filter(ClientRequestContext requestContext) {
+		getMetrics().started(requestContext);
+	}
+
+	@Override
+	public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+		getMetrics().completed(requestContext, responseContext);
+	}
+
+	private ClientMetrics getMetrics() {
+		ClientMetrics m = metrics;
+		if (m == null) {
+			m = CDI.current().select(ClientMetrics.class).get();
+			metrics = m;
+		}
+		return m;
+	}
+}
@@ -12,10 +12,13 @@ package org.eclipsefoundation.git.eca.api;
 import java.util.List;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
 
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.eclipsefoundation.git.eca.model.Project;
 
@@ -28,6 +31,7 @@ import org.eclipsefoundation.git.eca.model.Project;
  */
 @Path("/api/projects")
 @RegisterRestClient
+@RegisterProvider(ClientMetricsFilter.class)
 public interface ProjectsAPI {
 
 	/**
@@ -39,4 +43,15 @@ public interface ProjectsAPI {
 	@GET
 	@Produces("application/json")
 	List<Project> getProject(@QueryParam("page") int page, @QueryParam("pagesize") int pageSize);
+
+	/**
+	 * Retrieves the headers for a page of projects without the body, used to read
+	 * pagination data such as the link to the last page.
+	 * 
+	 * @param page     the page to retrieve headers for
+	 * @param pageSize the number of projects per page
+	 * @return the response for the page, without an entity
+	 */
+	@HEAD
+	Response getProjectPagination(@QueryParam("page") int page, @QueryParam("pagesize") int pageSize);
 }
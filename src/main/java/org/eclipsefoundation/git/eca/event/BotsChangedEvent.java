@@ -0,0 +1,19 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.event;
+
+/**
+ * CDI event fired when the registered bots have changed after a refresh.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class BotsChangedEvent {
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.event;
+
+/**
+ * CDI event fired when a refresh of a cached Eclipse account finds a change
+ * that affects validation, such as a change to the ECA or committer status of
+ * the user, or the account no longer existing.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class UserChangedEvent {
+	private final String mail;
+
+	/**
+	 * @param mail the normalized mail address of the user
+	 */
+	public UserChangedEvent(String mail) {
+		this.mail = mail;
+	}
+
+	/**
+	 * @return the normalized mail address of the user
+	 */
+	public String getMail() {
+		return mail;
+	}
+}
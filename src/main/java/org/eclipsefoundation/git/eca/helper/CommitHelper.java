@@ -9,6 +9,7 @@
  ******************************************************************************/
 package org.eclipsefoundation.git.eca.helper;
 
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,6 +71,16 @@ public class CommitHelper {
 		return null;
 	}
 
+	/**
+	 * Normalizes a mail address to the form used to look up and cache users.
+	 *
+	 * @param mail the mail address to normalize
+	 * @return the trimmed, lower case mail address
+	 */
+	public static String normalizeMail(String mail) {
+		return mail.trim().toLowerCase(Locale.ROOT);
+	}
+
 	private CommitHelper() {
 	}
 }
@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+
+import io.smallrye.metrics.app.Reservoir;
+
+/**
+ * <p>
+ * Reservoir counting values into fixed, log-linear buckets in the style of HDR
+ * histograms. Each power of two is split into 32 buckets, so percentiles are
+ * accurate to within about 3% of the value, and values below 32 are counted
+ * exactly. Values past 2<sup>41</sup> (about 36 minutes in nanoseconds) are
+ * counted in the last bucket.
+ * </p>
+ *
+ * <p>
+ * Unlike sampling reservoirs, recording a value only increments atomic
+ * counters, so it never allocates and no values are lost under concurrent
+ * updates. Counts are kept in a ring of time windows so that snapshots reflect
+ * recent values only. When a window is reused, values recorded into it while it
+ * is being cleared may be lost.
+ * </p>
+ *
+ * @author Martin Lowe
+ *
+ */
+public class HistogramReservoir implements Reservoir {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_MAGNITUDE = 40;
+	static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	// per window statistics, stored at the window index
+	private static final int STAT_COUNT = 0;
+	private static final int STAT_SUM = 1;
+	private static final int STAT_MIN = 2;
+	private static final int STAT_MAX = 3;
+	private static final int STATS = 4;
+
+	private final long windowMillis;
+	private final int windows;
+	private final LongSupplier clock;
+	private final AtomicLongArray epochs;
+	private final AtomicLongArray counts;
+	private final AtomicLongArray stats;
+
+	/**
+	 * Creates a reservoir reporting on the values recorded over the last window
+	 * duration multiplied by the number of windows.
+	 *
+	 * @param windowDuration the duration of a single window
+	 * @param unit           the unit of the window duration
+	 * @param windows        the number of windows to keep
+	 */
+	public HistogramReservoir(long windowDuration, TimeUnit unit, int windows) {
+		this(windowDuration, unit, windows, System::currentTimeMillis);
+	}
+
+	HistogramReservoir(long windowDuration, TimeUnit unit, int windows, LongSupplier clock) {
+		if (windowDuration <= 0 || windows <= 0) {
+			throw new IllegalArgumentException("Window duration and count must be positive");
+		}
+		this.windowMillis = unit.toMillis(windowDuration);
+		this.windows = windows;
+		this.clock = clock;
+		this.epochs = new AtomicLongArray(windows);
+		this.counts = new AtomicLongArray(windows * BUCKETS);
+		this.stats = new AtomicLongArray(windows * STATS);
+		long epoch = clock.getAsLong() / windowMillis;
+		for (int w = 0; w < windows; w++) {
+			// mark all windows as expired
+			epochs.set(w, epoch - windows);
+			stats.set(w * STATS + STAT_MIN, Long.MAX_VALUE);
+		}
+	}
+
+	@Override
+	public void update(long value) {
+		long v = Math.max(0, value);
+		int w = currentWindow();
+		counts.incrementAndGet(w * BUCKETS + bucketOf(v));
+		int s = w * STATS;
+		stats.incrementAndGet(s + STAT_COUNT);
+		stats.addAndGet(s + STAT_SUM, v);
+		long min;
+		while (v < (min = stats.get(s + STAT_MIN)) && !stats.compareAndSet(s + STAT_MIN, min, v)) {
+			// retry until this value is not the new minimum, or has been set
+		}
+		long max;
+		while (v > (max = stats.get(s + STAT_MAX)) && !stats.compareAndSet(s + STAT_MAX, max, v)) {
+			// retry until this value is not the new maximum, or has been set
+		}
+	}
+
+	@Override
+	public int size() {
+		long count = 0;
+		long epoch = clock.getAsLong() / windowMillis;
+		for (int w = 0; w < windows; w++) {
+			if (isLive(w, epoch)) {
+				count += stats.get(w * STATS + STAT_COUNT);
+			}
+		}
+		return (int) Math.min(Integer.MAX_VALUE, count);
+	}
+
+	@Override
+	public Snapshot getSnapshot() {
+		long[] merged = new long[BUCKETS];
+		long count = 0;
+		long sum = 0;
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		long epoch = clock.getAsLong() / windowMillis;
+		for (int w = 0; w < windows; w++) {
+			if (!isLive(w, epoch)) {
+				continue;
+			}
+			for (int b = 0; b < BUCKETS; b++) {
+				merged[b] += counts.get(w * BUCKETS + b);
+			}
+			int s = w * STATS;
+			count += stats.get(s + STAT_COUNT);
+			sum += stats.get(s + STAT_SUM);
+			min = Math.min(min, stats.get(s + STAT_MIN));
+			max = Math.max(max, stats.get(s + STAT_MAX));
+		}
+		return new BucketSnapshot(merged, count, sum, count == 0 ? 0 : min, max);
+	}
+
+	/**
+	 * Retrieves the window for the current time, clearing it first if it still
+	 * holds values from an earlier pass around the ring.
+	 *
+	 * @return the index of the current window
+	 */
+	private int currentWindow() {
+		long epoch = clock.getAsLong() / windowMillis;
+		int w = (int) (epoch % windows);
+		long current = epochs.get(w);
+		if (current != epoch && epochs.compareAndSet(w, current, epoch)) {
+			for (int b = 0; b < BUCKETS; b++) {
+				counts.set(w * BUCKETS + b, 0);
+			}
+			int s = w * STATS;
+			stats.set(s + STAT_COUNT, 0);
+			stats.set(s + STAT_SUM, 0);
+			stats.set(s + STAT_MIN, Long.MAX_VALUE);
+			stats.set(s + STAT_MAX, 0);
+		}
+		return w;
+	}
+
+	private boolean isLive(int w, long epoch) {
+		return epoch - epochs.get(w) < windows;
+	}
+
+	/**
+	 * @param value a non-negative value
+	 * @return the index of the bucket counting the value
+	 */
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		if (magnitude > MAX_MAGNITUDE) {
+			return BUCKETS - 1;
+		}
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int sub = (int) (value >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @param bucket the index of a bucket
+	 * @return the lowest value counted in the bucket
+	 */
+	static long lowestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << shift;
+	}
+
+	/**
+	 * @param bucket the index of a bucket
+	 * @return the value reported for values counted in the bucket, which is the
+	 *         middle of the range of the bucket
+	 */
+	static long valueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		return lowestValueOf(bucket) + ((1L << shift) >>> 1);
+	}
+
+	/**
+	 * Snapshot over merged bucket counts. Percentiles are reported using the value
+	 * of the bucket they fall in, bounded by the recorded minimum and maximum.
+	 */
+	private static class BucketSnapshot extends Snapshot {
+		private final long[] buckets;
+		private final long count;
+		private final long sum;
+		private final long min;
+		private final long max;
+
+		BucketSnapshot(long[] buckets, long count, long sum, long min, long max) {
+			this.buckets = buckets;
+			this.count = count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		public double getValue(double quantile) {
+			if (quantile < 0 || quantile > 1 || Double.isNaN(quantile)) {
+				throw new IllegalArgumentException(quantile + " is not in [0..1]");
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(quantile * count));
+			if (rank >= count) {
+				return max;
+			}
+			long seen = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				seen += buckets[b];
+				if (seen >= rank) {
+					return Math.max(min, Math.min(max, valueOf(b)));
+				}
+			}
+			return max;
+		}
+
+		/**
+		 * Returns the value of each non-empty bucket rather than every recorded value,
+		 * as the individual values are not kept.
+		 */
+		@Override
+		public long[] getValues() {
+			int nonEmpty = 0;
+			for (long c : buckets) {
+				if (c > 0) {
+					nonEmpty++;
+				}
+			}
+			long[] values = new long[nonEmpty];
+			int i = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				if (buckets[b] > 0) {
+					values[i++] = Math.max(min, Math.min(max, valueOf(b)));
+				}
+			}
+			return values;
+		}
+
+		@Override
+		public int size() {
+			return (int) Math.min(Integer.MAX_VALUE, count);
+		}
+
+		@Override
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		@Override
+		public long getMin() {
+			return min;
+		}
+
+		@Override
+		public double getStdDev() {
+			if (count < 2) {
+				return 0;
+			}
+			double mean = getMean();
+			double variance = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				if (buckets[b] > 0) {
+					double diff = valueOf(b) - mean;
+					variance += buckets[b] * diff * diff;
+				}
+			}
+			return Math.sqrt(variance / (count - 1));
+		}
+
+		@Override
+		public void dump(OutputStream output) {
+			try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+				for (long value : getValues()) {
+					out.printf("%d%n", value);
+				}
+			}
+		}
+	}
+}
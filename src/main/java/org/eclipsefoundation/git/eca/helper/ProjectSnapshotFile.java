@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.Project.Repo;
+import org.eclipsefoundation.git.eca.model.Project.User;
+import org.eclipsefoundation.git.eca.model.ProjectSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Reads and writes project snapshots to a compact binary file so that the last
+ * good snapshot can be served immediately on startup. The file consists of a
+ * header holding a magic number, the format version, the length of the payload
+ * and a CRC32 checksum of the payload, followed by the payload itself.
+ * </p>
+ *
+ * <p>
+ * Files are read through a memory mapped buffer, and are written to a temporary
+ * file that is then moved over the previous snapshot so that readers never see
+ * a partially written file. Files with an unknown format version or a checksum
+ * that does not match are discarded. Indexes and access policies are rebuilt
+ * from the projects on load, as they are cheap to build compared to fetching the
+ * projects.
+ * </p>
+ *
+ * @author Martin Lowe
+ *
+ */
+public class ProjectSnapshotFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProjectSnapshotFile.class);
+
+	static final int MAGIC = 0xECA5A9F1;
+	static final int FORMAT_VERSION = 1;
+	// magic, format version, payload length, checksum
+	static final int HEADER_LENGTH = 4 + 4 + 4 + 8;
+
+	private ProjectSnapshotFile() {
+	}
+
+	/**
+	 * Writes the projects of the given snapshot to the given path, replacing any
+	 * existing snapshot file.
+	 *
+	 * @param path     the path of the snapshot file
+	 * @param snapshot the snapshot to write
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public static void write(Path path, ProjectSnapshot snapshot) throws IOException {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(payload)) {
+			out.writeLong(snapshot.getCreatedTime());
+			out.writeInt(snapshot.getProjects().size());
+			for (Project p : snapshot.getProjects()) {
+				writeString(out, p.getProjectId());
+				writeString(out, p.getName());
+				writeString(out, p.getSpecWorkingGroup());
+				out.writeInt(p.getCommitters().size());
+				for (User u : p.getCommitters()) {
+					writeString(out, u.getUsername());
+					writeString(out, u.getUrl());
+				}
+				writeRepos(out, p.getRepos());
+				writeRepos(out, p.getGitlabRepos());
+				writeRepos(out, p.getGithubRepos());
+			}
+		}
+		byte[] bytes = payload.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(bytes.length).putLong(crc.getValue());
+		header.flip();
+
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+				channel.write(new ByteBuffer[] { header, ByteBuffer.wrap(bytes) });
+				channel.force(true);
+			}
+			try {
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Reads the snapshot stored at the given path. Snapshots that are missing,
+	 * unreadable, of another format version or that fail the checksum are not
+	 * returned.
+	 *
+	 * @param path    the path of the snapshot file
+	 * @param version the version to give to the loaded snapshot
+	 * @return the loaded snapshot if a valid one could be read, otherwise empty
+	 */
+	public static Optional<ProjectSnapshot> read(Path path, long version) {
+		if (!Files.isRegularFile(path)) {
+			return Optional.empty();
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+				LOGGER.warn("Discarding project snapshot at '{}', unexpected size {}", path, size);
+				return Optional.empty();
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC) {
+				LOGGER.warn("Discarding project snapshot at '{}', not a project snapshot", path);
+				return Optional.empty();
+			}
+			int formatVersion = buffer.getInt();
+			if (formatVersion != FORMAT_VERSION) {
+				LOGGER.warn("Discarding project snapshot at '{}', unsupported format version {}", path, formatVersion);
+				return Optional.empty();
+			}
+			int length = buffer.getInt();
+			long checksum = buffer.getLong();
+			if (length != size - HEADER_LENGTH) {
+				LOGGER.warn("Discarding project snapshot at '{}', payload is truncated", path);
+				return Optional.empty();
+			}
+			ByteBuffer payload = buffer.slice();
+			CRC32 crc = new CRC32();
+			crc.update(payload.duplicate());
+			if (crc.getValue() != checksum) {
+				LOGGER.warn("Discarding project snapshot at '{}', checksum does not match", path);
+				return Optional.empty();
+			}
+			return Optional.of(readPayload(payload, version));
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			LOGGER.warn("Discarding project snapshot at '{}', could not be read", path, e);
+			return Optional.empty();
+		}
+	}
+
+	private static ProjectSnapshot readPayload(ByteBuffer in, long version) {
+		long createdTime = in.getLong();
+		int count = readCount(in);
+		List<Project> projects = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Project p = new Project();
+			p.setProjectId(readString(in));
+			p.setName(readString(in));
+			p.setSpecWorkingGroup(readString(in));
+			int committerCount = readCount(in);
+			List<User> committers = new ArrayList<>(committerCount);
+			for (int j = 0; j < committerCount; j++) {
+				User u = new User();
+				u.setUsername(readString(in));
+				u.setUrl(readString(in));
+				committers.add(u);
+			}
+			p.setCommitters(committers);
+			p.setRepos(readRepos(in));
+			p.setGitlabRepos(readRepos(in));
+			p.setGithubRepos(readRepos(in));
+			projects.add(p);
+		}
+		return new ProjectSnapshot(projects, version, createdTime);
+	}
+
+	private static void writeRepos(DataOutputStream out, List<Repo> repos) throws IOException {
+		out.writeInt(repos.size());
+		for (Repo r : repos) {
+			writeString(out, r.getUrl());
+		}
+	}
+
+	private static List<Repo> readRepos(ByteBuffer in) {
+		int count = readCount(in);
+		List<Repo> repos = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Repo r = new Repo();
+			r.setUrl(readString(in));
+			repos.add(r);
+		}
+		return repos;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length == -1) {
+			return null;
+		}
+		if (length < 0 || length > in.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int readCount(ByteBuffer in) {
+		int count = in.getInt();
+		// each entry takes at least 4 bytes, which guards against bad allocations
+		if (count < 0 || count > in.remaining() / 4) {
+			throw new IllegalArgumentException("Invalid entry count " + count);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.Project.Repo;
+
+/**
+ * Immutable index of repository URLs to the projects that own them. URLs are
+ * stored reversed and sorted, so that all URLs ending with a given path share
+ * the reversed path as a prefix and sit next to each other in the index. This
+ * gives the same results as checking each repo URL with
+ * {@link String#endsWith(String)}, without scanning every repo of every
+ * project.
+ *
+ * @author Martin Lowe
+ *
+ */
+public class RepoIndex {
+	private final List<Project> projects;
+	private final String[] reversedUrls;
+	private final int[] owners;
+
+	/**
+	 * Builds an index over the repos of the given projects.
+	 *
+	 * @param projects the projects to index, in the order results should be
+	 *                 returned in
+	 * @param repos    function retrieving the repos to index for a project
+	 */
+	public RepoIndex(List<Project> projects, Function<Project, List<Repo>> repos) {
+		this.projects = Collections.unmodifiableList(new ArrayList<>(projects));
+		// collect reversed URLs alongside the index of the owning project
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < this.projects.size(); i++) {
+			for (Repo r : repos.apply(this.projects.get(i))) {
+				if (r != null && r.getUrl() != null) {
+					entries.add(new Entry(new StringBuilder(r.getUrl()).reverse().toString(), i));
+				}
+			}
+		}
+		entries.sort(Comparator.comparing(e -> e.reversedUrl));
+		this.reversedUrls = new String[entries.size()];
+		this.owners = new int[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			reversedUrls[i] = entries.get(i).reversedUrl;
+			owners[i] = entries.get(i).owner;
+		}
+	}
+
+	/**
+	 * Retrieves the projects that have at least one repo with a URL ending with the
+	 * given path.
+	 *
+	 * @param path the path to match repo URLs against
+	 * @return the matching projects in index order, or an empty list if there are
+	 *         none.
+	 */
+	public List<Project> getProjects(String path) {
+		String reversedPath = new StringBuilder(path).reverse().toString();
+		// all matches are contiguous, starting at the first URL not less than the path
+		BitSet matches = new BitSet(projects.size());
+		for (int i = lowerBound(reversedPath); i < reversedUrls.length
+				&& reversedUrls[i].startsWith(reversedPath); i++) {
+			matches.set(owners[i]);
+		}
+		if (matches.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Project> out = new ArrayList<>(matches.cardinality());
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			out.add(projects.get(i));
+		}
+		return out;
+	}
+
+	/**
+	 * @param key the value to search for
+	 * @return the position of the first URL that is not less than the key
+	 */
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = reversedUrls.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (reversedUrls[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static class Entry {
+		private final String reversedUrl;
+		private final int owner;
+
+		private Entry(String reversedUrl, int owner) {
+			this.reversedUrl = reversedUrl;
+			this.owner = owner;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.GitUser;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Computes a digest of the parts of a validation request that the result
+ * depends on, so that identical requests can share a single result. Only the
+ * fields used in validation are included, so commits differing in their
+ * subject or in the parts of their body other than the sign off footer give the
+ * same digest.
+ *
+ * @author Martin Lowe
+ *
+ */
+public final class RequestDigest {
+	// separates fields so that moving characters between fields changes the digest
+	private static final char SEPARATOR = '\0';
+	private static final char NULL = '\1';
+
+	private RequestDigest() {
+	}
+
+	/**
+	 * Computes the digest of a request.
+	 *
+	 * @param scope   the scope of the request, covering the provider, repo and
+	 *                the state of the data the request is validated against
+	 * @param commits the commits of the request, in order
+	 * @return hex encoded digest of the request
+	 */
+	public static String of(String scope, List<Commit> commits) {
+		Hasher h = Hashing.sha256().newHasher();
+		put(h, scope);
+		for (Commit c : commits) {
+			put(h, c);
+		}
+		return h.hash().toString();
+	}
+
+	/**
+	 * Computes the digest of a single commit, covering the same fields as the
+	 * digest of a request.
+	 *
+	 * @param c the commit to compute the digest of
+	 * @return hex encoded digest of the commit
+	 */
+	public static String of(Commit c) {
+		Hasher h = Hashing.sha256().newHasher();
+		put(h, c);
+		return h.hash().toString();
+	}
+
+	private static void put(Hasher h, Commit c) {
+		put(h, c == null ? null : c.getHash());
+		if (c == null) {
+			return;
+		}
+		put(h, c.getAuthor());
+		put(h, c.getCommitter());
+		put(h, c.getBody() == null ? null : CommitHelper.getSignedOffByEmail(c));
+		List<String> parents = c.getParents();
+		h.putInt(parents == null ? -1 : parents.size());
+		if (parents != null) {
+			parents.forEach(p -> put(h, p));
+		}
+	}
+
+	private static void put(Hasher h, GitUser user) {
+		put(h, user == null ? null : user.getName());
+		put(h, user == null ? null : user.getMail());
+	}
+
+	private static void put(Hasher h, String value) {
+		if (value == null) {
+			h.putChar(NULL);
+		} else {
+			h.putString(value, StandardCharsets.UTF_8);
+		}
+		h.putChar(SEPARATOR);
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipsefoundation.git.eca.namespace.ValidationStage;
+
+/**
+ * Tracks the time spent in each stage of the validation of a single request.
+ * Stages that run once per commit may run on multiple threads at once, so the
+ * time of a stage is the wall-clock time from its first start to its last end
+ * rather than the sum of its runs. Recording only costs a call to
+ * {@link System#nanoTime()} and two atomic updates, so timings are always
+ * collected.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class StageTimings {
+	private static final ValidationStage[] STAGES = ValidationStage.values();
+
+	private final long created = System.nanoTime();
+	private final AtomicLongArray starts = new AtomicLongArray(STAGES.length);
+	private final AtomicLongArray ends = new AtomicLongArray(STAGES.length);
+
+	public StageTimings() {
+		for (int i = 0; i < STAGES.length; i++) {
+			starts.set(i, Long.MAX_VALUE);
+			ends.set(i, Long.MIN_VALUE);
+		}
+	}
+
+	/**
+	 * @return the current time to pass to {@link #record(ValidationStage, long)}
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records a run of a stage from the given start time until now.
+	 * 
+	 * @param stage the stage to record time for
+	 * @param start the start time of the stage as returned by {@link #start()}
+	 * @return the elapsed time of this run in nanoseconds
+	 */
+	public long record(ValidationStage stage, long start) {
+		long end = System.nanoTime();
+		starts.accumulateAndGet(stage.ordinal(), start, Math::min);
+		ends.accumulateAndGet(stage.ordinal(), end, Math::max);
+		return end - start;
+	}
+
+	/**
+	 * @param stage the stage to retrieve the time for
+	 * @return the time from the first start to the last end of the stage in
+	 *         nanoseconds, or 0 if the stage was not run
+	 */
+	public long getDuration(ValidationStage stage) {
+		long end = ends.get(stage.ordinal());
+		return end == Long.MIN_VALUE ? 0 : end - starts.get(stage.ordinal());
+	}
+
+	/**
+	 * Formats the recorded timings as the value of a Server-Timing header, with
+	 * durations in milliseconds. Stages with no recorded time are left out, and the
+	 * time since the timings were created is included as the total.
+	 * 
+	 * @return the Server-Timing header value
+	 */
+	public String toServerTiming() {
+		StringBuilder sb = new StringBuilder();
+		for (ValidationStage stage : STAGES) {
+			long duration = getDuration(stage);
+			if (duration > 0) {
+				appendMetric(sb, stage.getName(), stage.getDescription(), duration);
+			}
+		}
+		appendMetric(sb, "total", "Total", System.nanoTime() - created);
+		return sb.toString();
+	}
+
+	private static void appendMetric(StringBuilder sb, String name, String description, long nanos) {
+		if (sb.length() > 0) {
+			sb.append(", ");
+		}
+		sb.append(name).append(";desc=\"").append(description).append("\";dur=")
+				.append(String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering a cache lookup, including the time taken to
+ * load the value on a miss.
+ *
+ * @author Martin Lowe
+ *
+ */
+@Name("org.eclipsefoundation.git.eca.CacheLookup")
+@Label("ECA Cache Lookup")
+@Category({ "Eclipse", "ECA" })
+@Description("Lookup of a value in the cache, loading it on a miss")
+public class CacheLookupEvent extends jdk.jfr.Event {
+	@Label("Provider")
+	public String provider;
+	@Label("Region")
+	public String region;
+	@Label("Hit")
+	public boolean hit;
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the checks made against a single commit.
+ *
+ * @author Martin Lowe
+ *
+ */
+@Name("org.eclipsefoundation.git.eca.Commit")
+@Label("ECA Commit Check")
+@Category({ "Eclipse", "ECA" })
+@Description("Checks made against a single commit of a validation request")
+public class CommitEvent extends jdk.jfr.Event {
+	@Label("Commit Hash")
+	public String hash;
+	@Label("Error Count")
+	public int errorCount;
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the lookup of a single user against the
+ * accounts API. The mail address is not recorded, as recordings may be shared
+ * outside of the service.
+ *
+ * @author Martin Lowe
+ *
+ */
+@Name("org.eclipsefoundation.git.eca.IdentityLookup")
+@Label("ECA Identity Lookup")
+@Category({ "Eclipse", "ECA" })
+@Description("Lookup of a single user against the accounts API")
+public class IdentityLookupEvent extends jdk.jfr.Event {
+	@Label("Found")
+	public boolean found;
+	@Label("Failed")
+	public boolean failed;
+}
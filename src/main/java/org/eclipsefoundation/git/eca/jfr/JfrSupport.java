@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.jfr;
+
+/**
+ * Checks whether Java Flight Recorder is available on the current runtime.
+ * Flight Recorder is only available from Java 8u262 and Java 11 on, and the
+ * event classes in this package fail to load without it, so they must only be
+ * used once {@link #AVAILABLE} has been checked. This class does not reference
+ * any Flight Recorder types so that it is always safe to load.
+ *
+ * @author Martin Lowe
+ *
+ */
+public final class JfrSupport {
+	/**
+	 * Whether Flight Recorder events can be created on the current runtime.
+	 */
+	public static final boolean AVAILABLE = isAvailable();
+
+	private JfrSupport() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
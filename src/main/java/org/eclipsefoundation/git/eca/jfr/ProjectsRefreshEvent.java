@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering a refresh of the projects snapshot.
+ *
+ * @author Martin Lowe
+ *
+ */
+@Name("org.eclipsefoundation.git.eca.ProjectsRefresh")
+@Label("ECA Projects Refresh")
+@Category({ "Eclipse", "ECA" })
+@Description("Refresh of the snapshot of Eclipse projects")
+public class ProjectsRefreshEvent extends jdk.jfr.Event {
+	@Label("Project Count")
+	public int projectCount;
+	@Label("Page Count")
+	public int pageCount;
+	@Label("Succeeded")
+	public boolean succeeded;
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the validation of a request.
+ *
+ * @author Martin Lowe
+ *
+ */
+@Name("org.eclipsefoundation.git.eca.Validation")
+@Label("ECA Validation")
+@Category({ "Eclipse", "ECA" })
+@Description("Validation of the commits of a request")
+public class ValidationEvent extends jdk.jfr.Event {
+	@Label("Repository")
+	public String repo;
+	@Label("Provider")
+	public String provider;
+	@Label("Commit Count")
+	public int commitCount;
+	@Label("Tracked Project")
+	public boolean tracked;
+	@Label("Passed")
+	public boolean passed;
+}
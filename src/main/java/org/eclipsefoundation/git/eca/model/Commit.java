@@ -70,10 +70,10 @@ public class Commit {
 	}
 
 	/**
-	 * @return the parents
+	 * @return copy of the parents, or null if none were set
 	 */
 	public List<String> getParents() {
-		return new ArrayList<>(parents);
+		return parents == null ? null : new ArrayList<>(parents);
 	}
 
 	/**
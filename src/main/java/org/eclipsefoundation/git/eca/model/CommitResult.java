@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * Represents the result of validating a single commit, written as its own
+ * record when validating a stream of commits.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class CommitResult {
+	private String hash;
+	private CommitStatus status;
+
+	public CommitResult(String hash, CommitStatus status) {
+		this.hash = hash;
+		this.status = status;
+	}
+
+	/**
+	 * @return the hash
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @param hash the hash to set
+	 */
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * @return true if no errors were found for the commit
+	 */
+	public boolean isPassed() {
+		return status.getErrors().isEmpty();
+	}
+
+	/**
+	 * @return the status
+	 */
+	@JsonUnwrapped
+	public CommitStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @param status the status to set
+	 */
+	public void setStatus(CommitStatus status) {
+		this.status = status;
+	}
+}
@@ -98,6 +98,16 @@ public class CommitStatus {
 		this.errors.add(new CommitStatusMessage(code, error));
 	}
 
+	/**
+	 * @param other commit status whose messages, warnings, and errors should be
+	 *              appended to the current commit status
+	 */
+	public void merge(CommitStatus other) {
+		this.messages.addAll(other.messages);
+		this.warnings.addAll(other.warnings);
+		this.errors.addAll(other.errors);
+	}
+
 	/**
 	 * Represents a message with an associated error or success status code.
 	 * 
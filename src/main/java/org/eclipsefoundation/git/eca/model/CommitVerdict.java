@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.model;
+
+/**
+ * The cached result of validating a single commit, along with the state of the
+ * users it was validated against so that the result can be discarded once
+ * either of the users changes. A digest of the validated fields of the commit is
+ * kept so that a commit sent again with the same hash but different content is
+ * not answered from the cache.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class CommitVerdict {
+	private final CommitStatus status;
+	private final String contentHash;
+	private final UserState author;
+	private final UserState committer;
+
+	/**
+	 * @param status      the status of the commit
+	 * @param contentHash digest of the fields of the commit that were validated
+	 * @param author      state of the author when the commit was validated, or
+	 *                    null if the author was not checked
+	 * @param committer   state of the committer when the commit was validated, or
+	 *                    null if the committer was not checked
+	 */
+	public CommitVerdict(CommitStatus status, String contentHash, UserState author, UserState committer) {
+		this.status = status;
+		this.contentHash = contentHash;
+		this.author = author;
+		this.committer = committer;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public CommitStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the contentHash
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @return the author, or null if the author was not checked
+	 */
+	public UserState getAuthor() {
+		return author;
+	}
+
+	/**
+	 * @return the committer, or null if the committer was not checked
+	 */
+	public UserState getCommitter() {
+		return committer;
+	}
+
+	/**
+	 * The state of a user that a commit was validated against.
+	 * 
+	 * @author Martin Lowe
+	 *
+	 */
+	public static class UserState {
+		private final String mail;
+		private final String status;
+		private final long generation;
+
+		/**
+		 * @param mail       normalized mail address of the user
+		 * @param status     the ECA and committer status of the account of the user
+		 * @param generation generation of the user when the commit was validated
+		 */
+		public UserState(String mail, String status, long generation) {
+			this.mail = mail;
+			this.status = status;
+			this.generation = generation;
+		}
+
+		/**
+		 * @return the mail
+		 */
+		public String getMail() {
+			return mail;
+		}
+
+		/**
+		 * @return the status
+		 */
+		public String getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return the generation
+		 */
+		public long getGeneration() {
+			return generation;
+		}
+	}
+}
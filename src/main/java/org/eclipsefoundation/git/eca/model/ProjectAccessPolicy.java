@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipsefoundation.git.eca.model.Project.User;
+
+/**
+ * Immutable access policy compiled from a project, holding the data needed to
+ * check whether a user may commit to the project's repos.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class ProjectAccessPolicy {
+	private final Project project;
+	private final Set<String> committers;
+	private final String specWorkingGroup;
+
+	/**
+	 * Compiles the access policy for the given project.
+	 * 
+	 * @param project the project to compile the policy for
+	 */
+	public ProjectAccessPolicy(Project project) {
+		this.project = project;
+		this.specWorkingGroup = project.getSpecWorkingGroup();
+		Set<String> usernames = new HashSet<>();
+		for (User u : project.getCommitters()) {
+			if (u.getUsername() != null) {
+				usernames.add(u.getUsername());
+			}
+		}
+		this.committers = Collections.unmodifiableSet(usernames);
+	}
+
+	/**
+	 * @return the project the policy was compiled from
+	 */
+	public Project getProject() {
+		return project;
+	}
+
+	/**
+	 * @return the specWorkingGroup, or null if the project is not a specification
+	 *         project
+	 */
+	public String getSpecWorkingGroup() {
+		return specWorkingGroup;
+	}
+
+	/**
+	 * @param username the Eclipse username to check
+	 * @return true if the user is a committer on the project, false otherwise
+	 */
+	public boolean isCommitter(String username) {
+		return username != null && committers.contains(username);
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipsefoundation.git.eca.helper.RepoIndex;
+import org.eclipsefoundation.git.eca.model.Project.Repo;
+import org.eclipsefoundation.git.eca.model.Project.User;
+import org.eclipsefoundation.git.eca.namespace.ProviderType;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Immutable snapshot of all Eclipse projects, along with the indexes and access
+ * policies derived from them. A snapshot is built each time the projects are
+ * refreshed, so that lookups made against it are always consistent with each
+ * other.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class ProjectSnapshot {
+	private final List<Project> projects;
+	private final long version;
+	private final long createdTime;
+	private final String contentHash;
+	private final Map<ProviderType, RepoIndex> repoIndexes;
+	private final Map<Project, ProjectAccessPolicy> policies;
+
+	/**
+	 * Builds a snapshot and its indexes for the given projects, compiling an access
+	 * policy for each project.
+	 * 
+	 * @param projects the projects to include in the snapshot
+	 * @param version  the version of the snapshot, changing only when the
+	 *                 projects do
+	 */
+	public ProjectSnapshot(List<Project> projects, long version) {
+		this(projects, version, System.currentTimeMillis());
+	}
+
+	/**
+	 * Builds a snapshot and its indexes for the given projects, keeping the time
+	 * the projects were originally retrieved. Used when restoring a snapshot that
+	 * was previously persisted.
+	 * 
+	 * @param projects    the projects to include in the snapshot
+	 * @param version     the version of the snapshot, changing only when the
+	 *                    projects do
+	 * @param createdTime the time the projects were retrieved in millis since epoch
+	 */
+	public ProjectSnapshot(List<Project> projects, long version, long createdTime) {
+		this.projects = Collections.unmodifiableList(new ArrayList<>(projects));
+		this.version = version;
+		this.createdTime = createdTime;
+		this.contentHash = digest(this.projects);
+		this.policies = new IdentityHashMap<>();
+		for (Project p : this.projects) {
+			policies.put(p, new ProjectAccessPolicy(p));
+		}
+		this.repoIndexes = new EnumMap<>(ProviderType.class);
+		repoIndexes.put(ProviderType.GITLAB, new RepoIndex(this.projects, Project::getGitlabRepos));
+		repoIndexes.put(ProviderType.GITHUB, new RepoIndex(this.projects, Project::getGithubRepos));
+		repoIndexes.put(ProviderType.GERRIT, new RepoIndex(this.projects, Project::getRepos));
+	}
+
+	/**
+	 * @return the projects
+	 */
+	public List<Project> getProjects() {
+		return projects;
+	}
+
+	/**
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the time the snapshot was created in millis since epoch
+	 */
+	public long getCreatedTime() {
+		return createdTime;
+	}
+
+	/**
+	 * @return a digest of the parts of the projects used in validation, equal for
+	 *         snapshots that would give the same results
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * Retrieves the access policies of the projects that have a repo for the given
+	 * provider whose URL ends with the given path.
+	 * 
+	 * @param provider the provider hosting the repo
+	 * @param repoPath the path of the repo URL
+	 * @return list of access policies for matching projects, or an empty list if
+	 *         none found.
+	 */
+	public List<ProjectAccessPolicy> getPoliciesForRepo(ProviderType provider, String repoPath) {
+		return repoIndexes.get(provider).getProjects(repoPath).stream().map(policies::get)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Computes the digest of the parts of the given projects used in validation.
+	 * 
+	 * @param projects the projects to compute the digest of, in order
+	 * @return hex encoded digest of the projects
+	 */
+	public static String digest(List<Project> projects) {
+		Hasher h = Hashing.sha256().newHasher();
+		h.putInt(projects.size());
+		for (Project p : projects) {
+			put(h, p.getProjectId());
+			put(h, p.getName());
+			put(h, p.getSpecWorkingGroup());
+			List<User> committers = p.getCommitters() == null ? Collections.emptyList() : p.getCommitters();
+			h.putInt(committers.size());
+			committers.forEach(u -> put(h, u.getUsername()));
+			putRepos(h, p.getRepos());
+			putRepos(h, p.getGitlabRepos());
+			putRepos(h, p.getGithubRepos());
+		}
+		return h.hash().toString();
+	}
+
+	private static void putRepos(Hasher h, List<Repo> repos) {
+		List<Repo> in = repos == null ? Collections.emptyList() : repos;
+		h.putInt(in.size());
+		in.forEach(r -> put(h, r.getUrl()));
+	}
+
+	private static void put(Hasher h, String value) {
+		// length prefixed so that moving characters between fields changes the digest
+		h.putInt(value == null ? -1 : value.length());
+		if (value != null) {
+			h.putString(value, StandardCharsets.UTF_8);
+		}
+	}
+}
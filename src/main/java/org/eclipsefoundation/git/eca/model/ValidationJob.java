@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.model;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipsefoundation.git.eca.namespace.JobStatus;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Represents a validation request processed in the background, along with its
+ * progress and, once complete, the response for the request. Jobs are updated
+ * by the worker processing them while being read by status requests.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@JsonInclude(Include.NON_NULL)
+public class ValidationJob {
+	private final String id;
+	private final int commitCount;
+	private final Date created;
+	private final AtomicInteger processedCount = new AtomicInteger();
+	private volatile JobStatus status = JobStatus.QUEUED;
+	private volatile Date completed;
+	private volatile ValidationResponse result;
+
+	public ValidationJob(String id, int commitCount) {
+		this.id = id;
+		this.commitCount = commitCount;
+		this.created = new Date();
+	}
+
+	/**
+	 * @return the id
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public JobStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @param status the status to set
+	 */
+	public void setStatus(JobStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the number of commits in the request
+	 */
+	public int getCommitCount() {
+		return commitCount;
+	}
+
+	/**
+	 * @return the number of commits processed so far
+	 */
+	public int getProcessedCount() {
+		return processedCount.get();
+	}
+
+	/**
+	 * Marks a commit of the request as processed.
+	 */
+	public void commitProcessed() {
+		processedCount.incrementAndGet();
+	}
+
+	/**
+	 * @return the time the job was created
+	 */
+	public Date getCreated() {
+		return created;
+	}
+
+	/**
+	 * @return the time the job completed, or null if still in progress
+	 */
+	public Date getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * @return the response for the request, or null if not yet complete
+	 */
+	public ValidationResponse getResult() {
+		return result;
+	}
+
+	/**
+	 * Completes the job with the given response.
+	 * 
+	 * @param result the response for the request
+	 */
+	public void complete(ValidationResponse result) {
+		this.result = result;
+		this.completed = new Date();
+		this.status = JobStatus.COMPLETE;
+	}
+
+	/**
+	 * Marks the job as failed.
+	 */
+	public void fail() {
+		this.completed = new Date();
+		this.status = JobStatus.FAILED;
+	}
+}
@@ -11,6 +11,7 @@ package org.eclipsefoundation.git.eca.model;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipsefoundation.git.eca.namespace.ProviderType;
@@ -41,10 +42,10 @@ public class ValidationRequest {
 	}
 
 	/**
-	 * @return the commits
+	 * @return read-only view of the commits, or null if none were set
 	 */
 	public List<Commit> getCommits() {
-		return new ArrayList<>(commits);
+		return commits == null ? null : Collections.unmodifiableList(commits);
 	}
 
 	/**
@@ -10,7 +10,7 @@
 package org.eclipsefoundation.git.eca.model;
 
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.ws.rs.core.Response;
@@ -32,7 +32,7 @@ public class ValidationResponse {
 	private boolean trackedProject;
 
 	public ValidationResponse() {
-		this.commits = new HashMap<>();
+		this.commits = new LinkedHashMap<>();
 		this.time = new Date();
 	}
 
@@ -114,6 +114,28 @@ public class ValidationResponse {
 		commits.computeIfAbsent(getHashKey(hash), k -> new CommitStatus()).addError(error, code);
 	}
 
+	/**
+	 * Appends all of the commit statuses of the given response to the current
+	 * response, maintaining the order of both the commits and their messages.
+	 * 
+	 * @param other the response to merge into the current response
+	 */
+	public void merge(ValidationResponse other) {
+		other.getCommits()
+				.forEach((hash, status) -> commits.computeIfAbsent(hash, k -> new CommitStatus()).merge(status));
+	}
+
+	/**
+	 * Appends the given commit status to the status of the commit with the given
+	 * hash.
+	 * 
+	 * @param hash   the hash of the commit
+	 * @param status the commit status to append
+	 */
+	public void merge(String hash, CommitStatus status) {
+		commits.computeIfAbsent(getHashKey(hash), k -> new CommitStatus()).merge(status);
+	}
+
 	/**
 	 * @return the trackedProject
 	 */
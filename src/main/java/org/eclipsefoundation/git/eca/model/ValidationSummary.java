@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.model;
+
+import java.util.Date;
+
+/**
+ * Represents the overall result of validating a stream of commits, written as
+ * the last record once all commits have been validated.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public class ValidationSummary {
+	private boolean passed;
+	private int errorCount;
+	private int commitCount;
+	private boolean trackedProject;
+	private Date time;
+
+	public ValidationSummary() {
+		this.time = new Date();
+	}
+
+	/**
+	 * @return the passed
+	 */
+	public boolean isPassed() {
+		return passed;
+	}
+
+	/**
+	 * @param passed the passed to set
+	 */
+	public void setPassed(boolean passed) {
+		this.passed = passed;
+	}
+
+	/**
+	 * @return the errorCount
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @param errorCount the errorCount to set
+	 */
+	public void setErrorCount(int errorCount) {
+		this.errorCount = errorCount;
+	}
+
+	/**
+	 * @return the commitCount
+	 */
+	public int getCommitCount() {
+		return commitCount;
+	}
+
+	/**
+	 * @param commitCount the commitCount to set
+	 */
+	public void setCommitCount(int commitCount) {
+		this.commitCount = commitCount;
+	}
+
+	/**
+	 * @return the trackedProject
+	 */
+	public boolean isTrackedProject() {
+		return trackedProject;
+	}
+
+	/**
+	 * @param trackedProject the trackedProject to set
+	 */
+	public void setTrackedProject(boolean trackedProject) {
+		this.trackedProject = trackedProject;
+	}
+
+	/**
+	 * @return the time
+	 */
+	public Date getTime() {
+		return time;
+	}
+
+	/**
+	 * @param time the time to set
+	 */
+	public void setTime(Date time) {
+		this.time = time;
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.namespace;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipsefoundation.git.eca.model.CommitVerdict;
+import org.eclipsefoundation.git.eca.model.EclipseUser;
+import org.eclipsefoundation.git.eca.model.ValidationResponse;
+
+/**
+ * Represents a named region of the cache, holding values of a single type. Each
+ * region has its own maximum size and TTL, configured using the
+ * <code>cache.region.&lt;name&gt;.max.size</code> and
+ * <code>cache.region.&lt;name&gt;.ttl.seconds</code> properties.
+ *
+ * @author Martin Lowe
+ *
+ * @param <T> the type of the values stored in the region
+ */
+public final class CacheRegion<T> {
+	/**
+	 * Eclipse accounts, by normalized mail address.
+	 */
+	@SuppressWarnings("unchecked")
+	public static final CacheRegion<List<EclipseUser>> USERS = new CacheRegion<>("user",
+			(Class<List<EclipseUser>>) (Object) List.class);
+	/**
+	 * Mail addresses known to have no Eclipse account. Kept separate from the users
+	 * so that non-existence can be cached for a shorter time.
+	 */
+	public static final CacheRegion<Boolean> UNKNOWN_USERS = new CacheRegion<>("unknown-user", Boolean.class);
+	/**
+	 * Validation results of single commits, by provider, repo, projects snapshot
+	 * version and commit hash.
+	 */
+	public static final CacheRegion<CommitVerdict> VERDICTS = new CacheRegion<>("verdict", CommitVerdict.class);
+	/**
+	 * Recent responses to validation requests, by request digest.
+	 */
+	public static final CacheRegion<ValidationResponse> RESPONSES = new CacheRegion<>("response",
+			ValidationResponse.class);
+
+	private final String name;
+	private final Class<T> type;
+
+	/**
+	 * @param name the name of the region, used in configuration
+	 * @param type the type of the values stored in the region
+	 */
+	public CacheRegion(String name, Class<T> type) {
+		this.name = Objects.requireNonNull(name);
+		this.type = Objects.requireNonNull(type);
+	}
+
+	/**
+	 * @return the name of the region
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the type of the values stored in the region
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CacheRegion)) {
+			return false;
+		}
+		CacheRegion<?> other = (CacheRegion<?>) obj;
+		return name.equals(other.name) && type.equals(other.type);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, type);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
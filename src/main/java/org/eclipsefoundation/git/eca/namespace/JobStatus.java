@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.namespace;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Represents the state of a background validation job.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public enum JobStatus {
+	QUEUED, RUNNING, COMPLETE, FAILED;
+
+	/**
+	 * @return human-friendly name of the JobStatus
+	 */
+	@JsonValue
+	public String getValue() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.namespace;
+
+/**
+ * Represents a stage of the validation of a request, used to report where time
+ * was spent when processing a request. Stages run once per commit are reported
+ * from the first start to the last end over all commits of the request, and the
+ * bot lookups are made before, and are not included in, the commit checks.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public enum ValidationStage {
+	REQUEST("request", "Request validation"), PROJECTS("projects", "Project filtering"),
+	IDENTITIES("identities", "Account lookups"), CHECKS("checks", "Commit checks"), BOTS("bots", "Bot lookups");
+
+	private String name;
+	private String description;
+
+	private ValidationStage(String name, String description) {
+		this.name = name;
+		this.description = description;
+	}
+
+	/**
+	 * @return the name of the stage as used in the Server-Timing header
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return human-friendly description of the stage
+	 */
+	public String getDescription() {
+		return description;
+	}
+}
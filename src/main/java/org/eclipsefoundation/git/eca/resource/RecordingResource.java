@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.git.eca.service.RecordingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admin endpoint to start and stop Flight Recorder recordings of the running
+ * service, returning the recorded data for analysis in JDK Mission Control. The
+ * endpoint is disabled unless <code>admin.recording.enabled</code> is set and an
+ * <code>admin.token</code> is configured, which must then be passed as a bearer
+ * token. When disabled, the endpoint responds as if it did not exist.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@Path("/admin/recording")
+@ApplicationScoped
+public class RecordingResource {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RecordingResource.class);
+
+	@Inject
+	RecordingService recordings;
+
+	@ConfigProperty(name = "admin.recording.enabled", defaultValue = "false")
+	boolean enabled;
+	@ConfigProperty(name = "admin.token")
+	Optional<String> token;
+
+	/**
+	 * Returns whether a recording is in progress.
+	 * 
+	 * @param auth the Authorization header of the request
+	 * @return the status of the recording
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response status(@HeaderParam(HttpHeaders.AUTHORIZATION) String auth) {
+		Optional<Response> denied = checkAccess(auth);
+		if (denied.isPresent()) {
+			return denied.get();
+		}
+		Map<String, Object> out = new HashMap<>();
+		out.put("available", recordings.isAvailable());
+		out.put("recording", recordings.isAvailable() && recordings.isRecording());
+		return Response.ok(out).build();
+	}
+
+	/**
+	 * Starts a recording for the given duration, capped at the configured
+	 * maximum.
+	 * 
+	 * @param auth    the Authorization header of the request
+	 * @param seconds the duration of the recording in seconds, or 0 for the
+	 *                maximum duration
+	 * @return the duration of the started recording, or a conflict if a recording
+	 *         already exists
+	 */
+	@POST
+	@Path("/start")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response start(@HeaderParam(HttpHeaders.AUTHORIZATION) String auth,
+			@QueryParam("duration") @DefaultValue("0") long seconds) {
+		Optional<Response> denied = checkAccess(auth);
+		if (denied.isPresent()) {
+			return denied.get();
+		}
+		if (!recordings.isAvailable()) {
+			return Response.status(Status.NOT_IMPLEMENTED).build();
+		}
+		Optional<Long> duration = recordings.start(seconds);
+		if (!duration.isPresent()) {
+			return Response.status(Status.CONFLICT).build();
+		}
+		Map<String, Object> out = new HashMap<>();
+		out.put("duration", duration.get());
+		return Response.ok(out).build();
+	}
+
+	/**
+	 * Stops the current recording and returns the recorded data.
+	 * 
+	 * @param auth the Authorization header of the request
+	 * @return the recording as a JFR file, or not found if there is no recording
+	 * @throws IOException if the recording could not be written
+	 */
+	@POST
+	@Path("/stop")
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	public Response stop(@HeaderParam(HttpHeaders.AUTHORIZATION) String auth) throws IOException {
+		Optional<Response> denied = checkAccess(auth);
+		if (denied.isPresent()) {
+			return denied.get();
+		}
+		if (!recordings.isAvailable()) {
+			return Response.status(Status.NOT_IMPLEMENTED).build();
+		}
+		Optional<java.nio.file.Path> file = recordings.stop();
+		if (!file.isPresent()) {
+			return Response.status(Status.NOT_FOUND).build();
+		}
+		java.nio.file.Path path = file.get();
+		StreamingOutput body = output -> {
+			try {
+				Files.copy(path, output);
+			} finally {
+				delete(path);
+			}
+		};
+		return Response.ok(body).header("Content-Disposition",
+				"attachment; filename=\"eca-" + System.currentTimeMillis() + ".jfr\"").build();
+	}
+
+	/**
+	 * Checks that the endpoint is enabled and that the request carries the admin
+	 * token.
+	 * 
+	 * @param auth the Authorization header of the request
+	 * @return the response to return if access is denied, or an empty optional
+	 */
+	private Optional<Response> checkAccess(String auth) {
+		if (!enabled || !token.isPresent() || token.get().isEmpty()) {
+			return Optional.of(Response.status(Status.NOT_FOUND).build());
+		}
+		byte[] expected = ("Bearer " + token.get()).getBytes(StandardCharsets.UTF_8);
+		if (auth == null || !MessageDigest.isEqual(expected, auth.getBytes(StandardCharsets.UTF_8))) {
+			return Optional.of(Response.status(Status.UNAUTHORIZED).build());
+		}
+		return Optional.empty();
+	}
+
+	private static void delete(java.nio.file.Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			LOGGER.warn("Could not remove recording at '{}'", path, e);
+		}
+	}
+}
@@ -9,40 +9,105 @@
  ******************************************************************************/
 package org.eclipsefoundation.git.eca.resource;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
-import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
 
-import org.eclipse.microprofile.rest.client.inject.RestClient;
-import org.eclipsefoundation.git.eca.api.AccountsAPI;
-import org.eclipsefoundation.git.eca.api.BotsAPI;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
 import org.eclipsefoundation.git.eca.helper.CommitHelper;
-import org.eclipsefoundation.git.eca.model.BotUser;
+import org.eclipsefoundation.git.eca.helper.HistogramReservoir;
+import org.eclipsefoundation.git.eca.helper.RequestDigest;
+import org.eclipsefoundation.git.eca.helper.StageTimings;
+import org.eclipsefoundation.git.eca.jfr.CommitEvent;
+import org.eclipsefoundation.git.eca.jfr.JfrSupport;
+import org.eclipsefoundation.git.eca.jfr.ValidationEvent;
 import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.CommitResult;
+import org.eclipsefoundation.git.eca.model.CommitStatus;
+import org.eclipsefoundation.git.eca.model.CommitVerdict;
 import org.eclipsefoundation.git.eca.model.EclipseUser;
 import org.eclipsefoundation.git.eca.model.GitUser;
 import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.ProjectAccessPolicy;
+import org.eclipsefoundation.git.eca.model.ProjectSnapshot;
+import org.eclipsefoundation.git.eca.model.ValidationJob;
 import org.eclipsefoundation.git.eca.model.ValidationRequest;
 import org.eclipsefoundation.git.eca.model.ValidationResponse;
+import org.eclipsefoundation.git.eca.model.ValidationSummary;
 import org.eclipsefoundation.git.eca.namespace.APIStatusCode;
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
 import org.eclipsefoundation.git.eca.namespace.ProviderType;
+import org.eclipsefoundation.git.eca.namespace.ValidationStage;
+import org.eclipsefoundation.git.eca.service.AccountsService;
+import org.eclipsefoundation.git.eca.service.BotsService;
 import org.eclipsefoundation.git.eca.service.CachingService;
-import org.eclipsefoundation.git.eca.service.OAuthService;
 import org.eclipsefoundation.git.eca.service.ProjectsService;
+import org.eclipsefoundation.git.eca.service.ValidationJobService;
+import org.eclipsefoundation.git.eca.service.VerdictService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.smallrye.metrics.app.HistogramImpl;
+import io.smallrye.metrics.app.TimerImpl;
+
 /**
  * ECA validation endpoint for Git commits. Will use information from the bots,
  * projects, and accounts API to validate commits passed to this endpoint.
@@ -53,26 +118,123 @@ import org.slf4j.LoggerFactory;
  *
  */
 @Path("/eca")
+@ApplicationScoped
 @Consumes({ MediaType.APPLICATION_JSON })
 @Produces({ MediaType.APPLICATION_JSON })
 public class ValidationResource {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ValidationResource.class);
-
-	// eclipse API rest client interfaces
-	@Inject
-	@RestClient
-	AccountsAPI accounts;
-	@Inject
-	@RestClient
-	BotsAPI bots;
+	public static final String NDJSON = "application/x-ndjson";
+	public static final String SERVER_TIMING_HEADER = "Server-Timing";
+	private static final String JOB_RETRY_AFTER = "30";
+	private static final Runnable NO_PROGRESS = () -> {
+	};
 
 	// external API/service harnesses
 	@Inject
-	OAuthService oauth;
+	AccountsService accounts;
 	@Inject
-	CachingService cache;
+	BotsService bots;
 	@Inject
 	ProjectsService projects;
+	@Inject
+	MetricRegistry registry;
+	@Inject
+	ObjectMapper mapper;
+	@Inject
+	ValidationJobService jobs;
+	@Inject
+	VerdictService verdicts;
+	@Inject
+	CachingService cache;
+
+	@ConfigProperty(name = "validation.pool.size", defaultValue = "16")
+	int poolSize;
+	@ConfigProperty(name = "validation.queue.size", defaultValue = "512")
+	int queueSize;
+	@ConfigProperty(name = "validation.async.threshold", defaultValue = "1000")
+	int asyncThreshold;
+	@ConfigProperty(name = "validation.status.max.age.seconds", defaultValue = "60")
+	int statusMaxAge;
+	@ConfigProperty(name = "validation.stream.window", defaultValue = "64")
+	int streamWindow;
+	@ConfigProperty(name = "metrics.histogram.window.seconds", defaultValue = "60")
+	long histogramWindow;
+	@ConfigProperty(name = "metrics.histogram.windows", defaultValue = "5")
+	int histogramWindows;
+
+	// bounded pool used to process the commits of a request concurrently
+	private ExecutorService executor;
+
+	// request metrics, with timers indexed by provider, tracked and passed flags
+	private Timer[] validationTimes;
+	private Histogram commitCounts;
+	private ConcurrentGauge inFlight;
+
+	/**
+	 * Creates the bounded executor used to fan out commit processing. When the
+	 * queue is full, the requesting thread processes the commit itself which
+	 * throttles large pushes rather than rejecting them.
+	 */
+	@PostConstruct
+	void init() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize),
+				new ThreadFactoryBuilder().setNameFormat("eca-validation-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+		registerMetrics();
+	}
+
+	/**
+	 * Registers the request metrics. A latency timer is registered for every
+	 * combination of provider, tracked project and result up front, so that
+	 * recording a request is only an array lookup and a few atomic updates.
+	 * Requests without a provider are recorded with the provider <code>none</code>.
+	 */
+	private void registerMetrics() {
+		ProviderType[] providers = ProviderType.values();
+		Metadata timeMetadata = Metadata.builder().withName("validation.time").withType(MetricType.TIMER)
+				.withUnit(MetricUnits.NANOSECONDS).withDescription("Time taken to validate a request").build();
+		this.validationTimes = new Timer[(providers.length + 1) * 4];
+		for (int p = 0; p <= providers.length; p++) {
+			String provider = p < providers.length ? providers[p].getValue() : "none";
+			for (int flags = 0; flags < 4; flags++) {
+				Timer t = new TimerImpl(new HistogramReservoir(histogramWindow, TimeUnit.SECONDS, histogramWindows));
+				validationTimes[p * 4 + flags] = registry.register(timeMetadata, t, new Tag("provider", provider),
+						new Tag("tracked", Boolean.toString((flags & 2) != 0)),
+						new Tag("passed", Boolean.toString((flags & 1) != 0)));
+			}
+		}
+		this.commitCounts = registry.register(
+				Metadata.builder().withName("validation.commits").withType(MetricType.HISTOGRAM)
+						.withDescription("Number of commits per validation request").build(),
+				new HistogramImpl(new HistogramReservoir(histogramWindow, TimeUnit.SECONDS, histogramWindows)));
+		this.inFlight = registry.concurrentGauge(Metadata.builder().withName("validation.inflight")
+				.withType(MetricType.CONCURRENT_GAUGE).withDescription("Number of requests being validated").build());
+	}
+
+	/**
+	 * Records the latency and size of a validation request.
+	 * 
+	 * @param provider    the provider of the request, if set
+	 * @param tracked     whether the request was for a tracked project
+	 * @param passed      whether the request passed validation
+	 * @param commitCount the number of commits in the request
+	 * @param duration    the time taken to validate the request, in nanoseconds
+	 */
+	private void recordRequest(ProviderType provider, boolean tracked, boolean passed, int commitCount,
+			long duration) {
+		int p = provider == null ? ProviderType.values().length : provider.ordinal();
+		int flags = (tracked ? 2 : 0) | (passed ? 1 : 0);
+		validationTimes[p * 4 + flags].update(duration, TimeUnit.NANOSECONDS);
+		commitCounts.update(commitCount);
+	}
+
+	@PreDestroy
+	void destroy() {
+		executor.shutdownNow();
+	}
 
 	/**
 	 * Consuming a JSON request, this method will validate all passed commits, using
@@ -81,14 +243,190 @@ public class ValidationResource {
 	 * project. In the case of ECA-only contributors, an additional sign off footer
 	 * is required in the body of the commit.
 	 * 
-	 * @param req the request containing basic data plus the commits to be validated
+	 * Requests with more than <code>validation.async.threshold</code> commits are
+	 * validated in the background instead, returning an accepted response with the
+	 * job to poll for the result, located under {@link #getJob(String)}.
+	 * 
+	 * Identical requests, as given by their {@link RequestDigest}, share a single
+	 * validation while in flight, and passing results are replayed for a short
+	 * time afterwards. The digest is returned as a weak ETag, and covers the
+	 * generations of the users of the commits so that results are not replayed
+	 * once an account has changed.
+	 * 
+	 * @param req the request containing basic data plus the commits to be
+	 *            validated
 	 * @return a web response indicating success or failure for each commit, along
 	 *         with standard messages that may be used to give users context on
-	 *         failure.
+	 *         failure. The time spent in each stage of the validation is
+	 *         reported in the Server-Timing header.
 	 * @throws MalformedURLException
 	 */
 	@POST
 	public Response validate(ValidationRequest req) {
+		if (req.getCommits() != null && req.getCommits().size() > asyncThreshold) {
+			return submitJob(req);
+		}
+		inFlight.inc();
+		try {
+			StageTimings timings = new StageTimings();
+			Optional<String> digest = digestOf(req);
+			if (!digest.isPresent()) {
+				Response out = validate(req, timings, NO_PROGRESS).toResponse();
+				return Response.fromResponse(out).header(SERVER_TIMING_HEADER, timings.toServerTiming()).build();
+			}
+			EntityTag tag = new EntityTag(digest.get(), true);
+			// identical requests in flight wait on the first one to be validated
+			ValidationResponse r = cache
+					.get(CacheRegion.RESPONSES, digest.get(), () -> validate(req, timings, NO_PROGRESS))
+					.orElseGet(() -> validate(req, timings, NO_PROGRESS));
+			// failures may be caused by upstream errors, so are not replayed
+			if (!r.isPassed()) {
+				cache.remove(CacheRegion.RESPONSES, digest.get());
+			}
+			return Response.fromResponse(r.toResponse()).tag(tag)
+					.header(SERVER_TIMING_HEADER, timings.toServerTiming()).build();
+		} finally {
+			inFlight.dec();
+		}
+	}
+
+	/**
+	 * Computes the digest of a request, if it is complete enough to be validated.
+	 * The generations of the users of the commits are part of the scope, so that
+	 * a change to any of their accounts gives a new digest.
+	 * 
+	 * @param req the request to compute the digest of
+	 * @return the digest of the request, or an empty optional if the request is
+	 *         missing required fields
+	 */
+	private Optional<String> digestOf(ValidationRequest req) {
+		if (req.getCommits() == null || req.getCommits().isEmpty() || req.getRepoUrl() == null
+				|| req.getProvider() == null) {
+			return Optional.empty();
+		}
+		StringBuilder scope = new StringBuilder(scopeOf(req, projects.getSnapshot()));
+		Set<String> mails = new TreeSet<>();
+		for (Commit c : req.getCommits()) {
+			if (c != null) {
+				addMail(mails, c.getAuthor());
+				addMail(mails, c.getCommitter());
+			}
+		}
+		for (String mail : mails) {
+			long generation = verdicts.generation(mail);
+			// users that never changed are left out to keep the scope short
+			if (generation != 0) {
+				scope.append('|').append(mail).append('=').append(generation);
+			}
+		}
+		return Optional.of(RequestDigest.of(scope.toString(), req.getCommits()));
+	}
+
+	private static void addMail(Set<String> mails, GitUser user) {
+		if (user != null && user.getMail() != null) {
+			mails.add(CommitHelper.normalizeMail(user.getMail()));
+		}
+	}
+
+	/**
+	 * Retrieves the progress of a background validation job, including the
+	 * response for the request once the job has completed.
+	 * 
+	 * @param id the ID of the job
+	 * @return the job, or not found if the job does not exist or has expired
+	 */
+	@GET
+	@Path("/jobs/{id}")
+	public Response getJob(@PathParam("id") String id) {
+		Optional<ValidationJob> job = jobs.get(id);
+		if (!job.isPresent()) {
+			return Response.status(Status.NOT_FOUND).build();
+		}
+		return Response.ok(job.get()).build();
+	}
+
+	/**
+	 * Retrieves the stored result of a commit validated earlier for the given repo,
+	 * so that integrations can check on a commit without sending it again. Results
+	 * are read from the cached commit results only, so no upstream calls are made,
+	 * and results are only available for the current projects snapshot.
+	 * 
+	 * @param provider the provider of the repo
+	 * @param repo     the path of the repo URL, without the leading slash
+	 * @param hash     the hash of the commit
+	 * @param request  the current request, used to evaluate conditional requests
+	 * @return the result of the commit, not modified if the client already holds
+	 *         the result, or not found if there is no stored result
+	 */
+	@GET
+	@Path("/status/{provider}/{repo: .+}/{hash}")
+	public Response getStatus(@PathParam("provider") String provider, @PathParam("repo") String repo,
+			@PathParam("hash") String hash, @Context Request request) {
+		Optional<ProviderType> type = Arrays.stream(ProviderType.values()).filter(p -> p.getValue().equals(provider))
+				.findFirst();
+		if (!type.isPresent()) {
+			return Response.status(Status.NOT_FOUND).build();
+		}
+		ProjectSnapshot snapshot = projects.getSnapshot();
+		String scope = verdicts.scope(type.get(), '/' + repo, snapshot == null ? 0 : snapshot.getVersion());
+		Optional<CommitVerdict> verdict = verdicts.get(scope, hash);
+		if (!verdict.isPresent()) {
+			return Response.status(Status.NOT_FOUND).build();
+		}
+		EntityTag tag = new EntityTag(Hashing.sha256()
+				.hashString(scope + '|' + hash + '|' + verdict.get().getContentHash(), StandardCharsets.UTF_8)
+				.toString(), true);
+		CacheControl cacheControl = new CacheControl();
+		cacheControl.setMaxAge(statusMaxAge);
+		ResponseBuilder notModified = request.evaluatePreconditions(tag);
+		if (notModified != null) {
+			return notModified.cacheControl(cacheControl).build();
+		}
+		return Response.ok(new CommitResult(hash, verdict.get().getStatus())).tag(tag).cacheControl(cacheControl)
+				.build();
+	}
+
+	/**
+	 * Queues the request as a background validation job.
+	 * 
+	 * @param req the request to validate
+	 * @return an accepted response with the queued job, or service unavailable if
+	 *         the job queue is full
+	 */
+	private Response submitJob(ValidationRequest req) {
+		Optional<ValidationJob> job = jobs.submit(req.getCommits().size(), j -> {
+			inFlight.inc();
+			try {
+				return validate(req, new StageTimings(), j::commitProcessed);
+			} finally {
+				inFlight.dec();
+			}
+		});
+		if (!job.isPresent()) {
+			return Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, JOB_RETRY_AFTER)
+					.entity("Too many validation jobs are queued, please try again later").build();
+		}
+		return Response.accepted(job.get())
+				.location(UriBuilder.fromResource(ValidationResource.class).path(ValidationResource.class, "getJob")
+						.build(job.get().getId()))
+				.build();
+	}
+
+	/**
+	 * Validates the given request.
+	 * 
+	 * @param req      the request to validate
+	 * @param timings  the stage timings for the request
+	 * @param progress called each time a commit of the request is processed
+	 * @return the response for the request
+	 */
+	private ValidationResponse validate(ValidationRequest req, StageTimings timings, Runnable progress) {
+		long requestStart = timings.start();
+		long start = requestStart;
+		ValidationEvent event = JfrSupport.AVAILABLE ? new ValidationEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
 		ValidationResponse r = new ValidationResponse();
 		// check that we have commits to validate
 		if (req.getCommits() == null || req.getCommits().isEmpty()) {
@@ -102,28 +440,310 @@ public class ValidationResource {
 		if (req.getProvider() == null) {
 			addError(r, "A provider needs to be set to validate a request", null);
 		}
+		timings.record(ValidationStage.REQUEST, start);
 		// only process if we have no errors
 		if (r.getErrorCount() == 0) {
 			LOGGER.debug("Processing: {}", req);
 			// filter the projects based on the repo URL. At least one repo in project must
 			// match the repo URL to be valid
-			List<Project> filteredProjects = retrieveProjectsForRequest(req);
+			start = timings.start();
+			ProjectSnapshot snapshot = projects.getSnapshot();
+			List<ProjectAccessPolicy> filteredProjects = retrieveProjectsForRequest(req, snapshot);
+			timings.record(ValidationStage.PROJECTS, start);
 			// set whether this call has tracked projects
 			r.setTrackedProject(!filteredProjects.isEmpty());
-			for (Commit c : req.getCommits()) {
-				// process the request, capturing if we should continue processing
-				boolean continueProcessing = processCommit(c, r, filteredProjects);
-				// if there is a reason to stop processing, break the loop
-				if (!continueProcessing) {
-					break;
-				}
-			}
+			processCommits(req.getCommits(), r, filteredProjects, scopeOf(req, snapshot), timings, progress);
 		}
 		// depending on number of errors found, set response status
 		if (r.getErrorCount() == 0) {
 			r.setPassed(true);
 		}
-		return r.toResponse();
+		recordRequest(req.getProvider(), r.isTrackedProject(), r.isPassed(),
+				req.getCommits() == null ? 0 : req.getCommits().size(), System.nanoTime() - requestStart);
+		if (event != null && event.shouldCommit()) {
+			event.repo = req.getRepoUrl() == null ? null : req.getRepoUrl().toString();
+			event.provider = req.getProvider() == null ? null : req.getProvider().getValue();
+			event.commitCount = req.getCommits() == null ? 0 : req.getCommits().size();
+			event.tracked = r.isTrackedProject();
+			event.passed = r.isPassed();
+			event.commit();
+		}
+		return r;
+	}
+
+	/**
+	 * Streaming variant of {@link #validate(ValidationRequest, String)} for very
+	 * large pushes. The body is newline-delimited JSON, starting with a header
+	 * record holding the repo URL and provider, followed by one record per commit.
+	 * One result record is written per commit in the order the commits were sent,
+	 * as soon as the commit and the ones before it are validated, followed by a
+	 * summary record. At most <code>validation.stream.window</code> commits are
+	 * held at once, so memory use does not depend on the number of commits.
+	 * 
+	 * As the response starts before all commits are validated, the status is
+	 * always OK once streaming starts, and the result is given by the summary
+	 * record.
+	 * 
+	 * @param in the request body
+	 * @return a streamed response of commit results and a summary, or a bad
+	 *         request if the header record is invalid
+	 * @throws IOException if the header record could not be read
+	 */
+	@POST
+	@Path("/stream")
+	@Consumes(NDJSON)
+	@Produces(NDJSON)
+	public Response validateStream(InputStream in) throws IOException {
+		JsonParser parser = mapper.getFactory().createParser(in);
+		ValidationRequest header;
+		try {
+			header = parser.nextToken() == null ? null : mapper.readValue(parser, ValidationRequest.class);
+		} catch (JsonProcessingException e) {
+			LOGGER.debug("Invalid header record for streamed validation", e);
+			header = null;
+		}
+		if (header == null || header.getRepoUrl() == null || header.getProvider() == null) {
+			return Response.status(Status.BAD_REQUEST)
+					.entity("A header record with a repo URL and provider is required to validate").build();
+		}
+		if (header.getCommits() != null) {
+			return Response.status(Status.BAD_REQUEST)
+					.entity("Commits must be sent as separate records after the header").build();
+		}
+		ValidationRequest req = header;
+		StreamingOutput body = output -> {
+			inFlight.inc();
+			try {
+				streamCommits(req, parser, output);
+			} finally {
+				inFlight.dec();
+				parser.close();
+			}
+		};
+		return Response.ok(body).build();
+	}
+
+	/**
+	 * Validates the commit records remaining in the parser, writing the result of
+	 * each commit and then a summary to the output.
+	 * 
+	 * @param req    the header record of the request
+	 * @param parser parser positioned after the header record
+	 * @param output the stream to write result records to
+	 * @throws IOException if records could not be read or written
+	 */
+	private void streamCommits(ValidationRequest req, JsonParser parser, OutputStream output) throws IOException {
+		long start = System.nanoTime();
+		StageTimings timings = new StageTimings();
+		ProjectSnapshot snapshot = projects.getSnapshot();
+		List<ProjectAccessPolicy> filteredProjects = retrieveProjectsForRequest(req, snapshot);
+		String scope = scopeOf(req, snapshot);
+		boolean tracked = !filteredProjects.isEmpty();
+		ValidationSummary summary = new ValidationSummary();
+		summary.setTrackedProject(tracked);
+
+		Deque<PendingCommit> window = new ArrayDeque<>(streamWindow);
+		MappingIterator<Commit> commits = mapper.readerFor(Commit.class).readValues(parser);
+		try {
+			while (commits.hasNextValue()) {
+				Commit c = commits.nextValue();
+				summary.setCommitCount(summary.getCommitCount() + 1);
+				// no commits after an invalid one are processed
+				boolean valid = CommitHelper.validateCommit(c);
+				if (!valid) {
+					while (!window.isEmpty()) {
+						writeResult(window.poll(), summary, output);
+					}
+				}
+				window.add(new PendingCommit(c.getHash(), CompletableFuture.supplyAsync(() -> {
+					ValidationResponse partial = new ValidationResponse();
+					partial.setTrackedProject(tracked);
+					Map<String, EclipseUser> identities = resolveIdentities(Collections.singletonList(c));
+					Optional<CommitStatus> cached = verdicts.get(scope, c, identities);
+					if (cached.isPresent()) {
+						partial.merge(c.getHash(), cached.get());
+					} else {
+						processCommit(c, partial, filteredProjects, identities, timings);
+						storeVerdict(scope, c, partial, identities);
+					}
+					return partial;
+				}, executor)));
+				if (!valid) {
+					break;
+				}
+				// wait on the oldest commit once the window is full
+				if (window.size() >= streamWindow) {
+					writeResult(window.poll(), summary, output);
+				}
+			}
+		} catch (RuntimeJsonMappingException | JsonProcessingException e) {
+			LOGGER.error("Invalid commit record in streamed validation", e);
+			ValidationResponse partial = new ValidationResponse();
+			partial.setTrackedProject(tracked);
+			addError(partial, "One or more commits were invalid. Please check the payload and try again", null);
+			window.add(new PendingCommit(null, CompletableFuture.completedFuture(partial)));
+		} finally {
+			while (!window.isEmpty()) {
+				writeResult(window.poll(), summary, output);
+			}
+		}
+		summary.setPassed(summary.getErrorCount() == 0);
+		writeRecord(summary, output);
+		recordRequest(req.getProvider(), tracked, summary.isPassed(), summary.getCommitCount(),
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Waits on the given commit to be validated and writes its result.
+	 * 
+	 * @param pending the commit being validated
+	 * @param summary the summary to add the errors of the commit to
+	 * @param output  the stream to write the result to
+	 * @throws IOException if the result could not be written
+	 */
+	private void writeResult(PendingCommit pending, ValidationSummary summary, OutputStream output)
+			throws IOException {
+		CommitStatus status = new CommitStatus();
+		try {
+			pending.result.join().getCommits().values().forEach(status::merge);
+		} catch (CompletionException e) {
+			LOGGER.error("Error while processing commit", e);
+			ValidationResponse partial = new ValidationResponse();
+			partial.setTrackedProject(summary.isTrackedProject());
+			addError(partial, "Commit could not be processed, please try again", pending.hash);
+			partial.getCommits().values().forEach(status::merge);
+		}
+		summary.setErrorCount(summary.getErrorCount() + status.getErrors().size());
+		writeRecord(new CommitResult(pending.hash, status), output);
+	}
+
+	private void writeRecord(Object record, OutputStream output) throws IOException {
+		output.write(mapper.writeValueAsBytes(record));
+		output.write('\n');
+		output.flush();
+	}
+
+	/**
+	 * Processes the given commits concurrently using the validation executor. The
+	 * Eclipse accounts of all users involved in the commits are resolved first, so
+	 * that each distinct user is only looked up once per request. Each commit is
+	 * then validated into its own partial response, which are merged back into the
+	 * main response in the order the commits were submitted so that output is
+	 * deterministic. As with sequential processing, processing stops at the first
+	 * commit that is missing required fields. Commits with a cached result are
+	 * answered from the cache, and their users are not resolved.
+	 * 
+	 * @param commits          the commits to process
+	 * @param r                the response container
+	 * @param filteredProjects tracked projects for the current request
+	 * @param scope            the scope of cached results for the current request
+	 * @param timings          the stage timings for the current request
+	 * @param progress         called each time a commit is processed
+	 */
+	private void processCommits(List<Commit> commits, ValidationResponse r, List<ProjectAccessPolicy> filteredProjects,
+			String scope, StageTimings timings, Runnable progress) {
+		// find the first invalid commit, as no commits after it should be processed
+		int end = commits.size();
+		for (int i = 0; i < commits.size(); i++) {
+			if (!CommitHelper.validateCommit(commits.get(i))) {
+				end = i + 1;
+				break;
+			}
+		}
+		// users are resolved for cached results too, so account changes are seen
+		long start = timings.start();
+		Map<String, EclipseUser> identities = resolveIdentities(commits.subList(0, end));
+		timings.record(ValidationStage.IDENTITIES, start);
+		CommitStatus[] cached = new CommitStatus[end];
+		for (int i = 0; i < end; i++) {
+			cached[i] = verdicts.get(scope, commits.get(i), identities).orElse(null);
+		}
+		// no need to hand off to the pool for a single commit
+		if (end == 1) {
+			Commit c = commits.get(0);
+			if (cached[0] != null) {
+				r.merge(c.getHash(), cached[0]);
+			} else {
+				processCommit(c, r, filteredProjects, identities, timings);
+				storeVerdict(scope, c, r, identities);
+			}
+			progress.run();
+			return;
+		}
+		List<CompletableFuture<ValidationResponse>> results = new ArrayList<>(end);
+		for (int i = 0; i < end; i++) {
+			Commit c = commits.get(i);
+			if (cached[i] != null) {
+				ValidationResponse partial = new ValidationResponse();
+				partial.merge(c.getHash(), cached[i]);
+				results.add(CompletableFuture.completedFuture(partial));
+				continue;
+			}
+			results.add(CompletableFuture.supplyAsync(() -> {
+				ValidationResponse partial = new ValidationResponse();
+				partial.setTrackedProject(r.isTrackedProject());
+				processCommit(c, partial, filteredProjects, identities, timings);
+				storeVerdict(scope, c, partial, identities);
+				return partial;
+			}, executor));
+		}
+		// merge the results back in order of submission
+		for (int i = 0; i < end; i++) {
+			try {
+				r.merge(results.get(i).join());
+			} catch (CompletionException e) {
+				LOGGER.error("Error while processing commit", e);
+				addError(r, "Commit could not be processed, please try again", commits.get(i).getHash());
+			}
+			progress.run();
+		}
+	}
+
+	/**
+	 * Caches the result of the given commit if it is final. Results of commits
+	 * whose users could not be resolved are not cached, as the lookup may have
+	 * failed rather than the user not existing.
+	 * 
+	 * @param scope      the scope of cached results for the current request
+	 * @param c          the processed commit
+	 * @param response   the response holding the result of the commit
+	 * @param identities the resolved Eclipse accounts for the request
+	 */
+	private void storeVerdict(String scope, Commit c, ValidationResponse response,
+			Map<String, EclipseUser> identities) {
+		if (!CommitHelper.validateCommit(c)) {
+			return;
+		}
+		if (c.getParents().size() <= 1
+				&& (identities.get(CommitHelper.normalizeMail(c.getAuthor().getMail())) == null
+						|| identities.get(CommitHelper.normalizeMail(c.getCommitter().getMail())) == null)) {
+			return;
+		}
+		CommitStatus status = response.getCommits().get(c.getHash());
+		if (status != null) {
+			verdicts.put(scope, c, status, identities);
+		}
+	}
+
+	/**
+	 * Resolves the Eclipse accounts for the distinct set of authors and committers
+	 * of the given commits. Mail addresses are normalized to lower case, and each
+	 * address is looked up exactly once. Merge commits and commits missing required
+	 * fields are skipped as their users are never checked.
+	 * 
+	 * @param commits the commits to resolve users for
+	 * @return map of normalized mail addresses to the matching Eclipse account,
+	 *         with a null value if no account could be found.
+	 */
+	private Map<String, EclipseUser> resolveIdentities(List<Commit> commits) {
+		Set<String> mails = new LinkedHashSet<>();
+		for (Commit c : commits) {
+			if (CommitHelper.validateCommit(c) && c.getParents().size() <= 1) {
+				mails.add(CommitHelper.normalizeMail(c.getAuthor().getMail()));
+				mails.add(CommitHelper.normalizeMail(c.getCommitter().getMail()));
+			}
+		}
+		return accounts.getUsers(mails);
 	}
 
 	/**
@@ -134,9 +754,13 @@ public class ValidationResource {
 	 * @param c                the commit to process
 	 * @param response         the response container
 	 * @param filteredProjects tracked projects for the current request
+	 * @param identities       resolved Eclipse accounts for the request, keyed by
+	 *                         normalized mail address
+	 * @param timings          the stage timings for the current request
 	 * @return true if we should continue processing, false otherwise.
 	 */
-	private boolean processCommit(Commit c, ValidationResponse response, List<Project> filteredProjects) {
+	private boolean processCommit(Commit c, ValidationResponse response, List<ProjectAccessPolicy> filteredProjects,
+			Map<String, EclipseUser> identities, StageTimings timings) {
 		// ensure the commit is valid, and has required fields
 		if (!CommitHelper.validateCommit(c)) {
 			addError(response, "One or more commits were invalid. Please check the payload and try again", c.getHash());
@@ -159,7 +783,7 @@ public class ValidationResource {
 		}
 
 		// retrieve the eclipse account for the author
-		EclipseUser eclipseAuthor = getIdentifiedUser(author);
+		EclipseUser eclipseAuthor = identities.get(CommitHelper.normalizeMail(author.getMail()));
 		if (eclipseAuthor == null) {
 			addMessage(response,
 					String.format("Could not find an Eclipse user with mail '%1$s' for author of commit %2$s",
@@ -170,7 +794,7 @@ public class ValidationResource {
 		}
 
 		// retrieve the eclipse account for the committer
-		EclipseUser eclipseCommitter = getIdentifiedUser(committer);
+		EclipseUser eclipseCommitter = identities.get(CommitHelper.normalizeMail(committer.getMail()));
 		if (eclipseCommitter == null) {
 			addMessage(response,
 					String.format("Could not find an Eclipse user with mail '%1$s' for committer of commit %2$s",
@@ -179,16 +803,38 @@ public class ValidationResource {
 			addError(response, "Committing user must have an Eclipse Account", c.getHash());
 			return true;
 		}
+		// look up bots ahead of the checks so that their time is not counted in them
+		long start = timings.start();
+		Set<String> authorBotProjects = bots.getBotProjects(eclipseAuthor.getMail());
+		Set<String> committerBotProjects = eclipseAuthor.equals(eclipseCommitter) ? authorBotProjects
+				: bots.getBotProjects(eclipseCommitter.getMail());
+		timings.record(ValidationStage.BOTS, start);
+
 		// validate author access to the current repo
-		validateAuthorAccess(response, c, eclipseAuthor, filteredProjects);
+		start = timings.start();
+		CommitEvent event = JfrSupport.AVAILABLE ? new CommitEvent() : null;
+		int errors = response.getErrorCount();
+		if (event != null) {
+			event.begin();
+		}
+		validateAuthorAccess(response, c, eclipseAuthor, authorBotProjects, filteredProjects);
 
 		// only committers can push on behalf of other users
 		if (!eclipseAuthor.equals(eclipseCommitter)
-				&& !isCommitter(response, eclipseCommitter, c.getHash(), filteredProjects)) {
+				&& !isCommitter(response, eclipseCommitter, committerBotProjects, c.getHash(), filteredProjects)) {
 			addMessage(response, "You are not a project committer.", c.getHash());
 			addMessage(response, "Only project committers can push on behalf of others.", c.getHash());
 			addError(response, "You must be a committer to push on behalf of others.", c.getHash());
 		}
+		long elapsed = timings.record(ValidationStage.CHECKS, start);
+		if (event != null && event.shouldCommit()) {
+			event.hash = c.getHash();
+			event.errorCount = response.getErrorCount() - errors;
+			event.commit();
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Checked commit '{}' in {} microseconds", c.getHash(), TimeUnit.NANOSECONDS.toMicros(elapsed));
+		}
 		return true;
 	}
 
@@ -200,12 +846,13 @@ public class ValidationResource {
 	 * @param r                the current response object for the request
 	 * @param c                the commit that is being validated
 	 * @param eclipseAuthor    the user to validate on a branch
+	 * @param botProjects      the projects the author is registered to as a bot
 	 * @param filteredProjects tracked projects for the current request
 	 */
 	private void validateAuthorAccess(ValidationResponse r, Commit c, EclipseUser eclipseAuthor,
-			List<Project> filteredProjects) {
+			Set<String> botProjects, List<ProjectAccessPolicy> filteredProjects) {
 		// check if the author matches to an eclipse user and is a committer
-		if (isCommitter(r, eclipseAuthor, c.getHash(), filteredProjects)) {
+		if (isCommitter(r, eclipseAuthor, botProjects, c.getHash(), filteredProjects)) {
 			addMessage(r, "The author is a committer on the project.", c.getHash());
 		} else {
 			addMessage(r, "The author is not a committer on the project.", c.getHash());
@@ -248,24 +895,27 @@ public class ValidationResource {
 	 * 
 	 * @param r                the current response object for the request
 	 * @param user             the user to validate on a branch
+	 * @param botProjects      the projects the user is registered to as a bot
 	 * @param hash             the hash of the commit that is being validated
 	 * @param filteredProjects tracked projects for the current request
 	 * @return true if user is considered a committer, false otherwise.
 	 */
-	private boolean isCommitter(ValidationResponse r, EclipseUser user, String hash, List<Project> filteredProjects) {
+	private boolean isCommitter(ValidationResponse r, EclipseUser user, Set<String> botProjects, String hash,
+			List<ProjectAccessPolicy> filteredProjects) {
 		// iterate over filtered projects
-		for (Project p : filteredProjects) {
+		for (ProjectAccessPolicy policy : filteredProjects) {
+			Project p = policy.getProject();
 			LOGGER.debug("Checking project '{}' for user '{}'", p.getName(), user.getName());
 
 			// check if any of the committers usernames match the current user
-			if (p.getCommitters().stream().anyMatch(u -> u.getUsername().equals(user.getName()))) {
+			if (policy.isCommitter(user.getName())) {
 				// check if the current project is a committer project, and if the user can
 				// commit to specs
-				if (p.getSpecWorkingGroup() != null && !user.getEca().isCanContributeSpecProject()) {
+				if (policy.getSpecWorkingGroup() != null && !user.getEca().isCanContributeSpecProject()) {
 					// set error + update response status
 					r.addError(hash, String.format(
 							"Project is a specification for the working group '%1$s', but user does not have permission to modify a specification project",
-							p.getSpecWorkingGroup()), APIStatusCode.ERROR_SPEC_PROJECT);
+							policy.getSpecWorkingGroup()), APIStatusCode.ERROR_SPEC_PROJECT);
 					return false;
 				} else {
 					LOGGER.debug("User '{}' was found to be a committer on current project repo '{}'", user.getMail(),
@@ -274,22 +924,12 @@ public class ValidationResource {
 				}
 			}
 
-			// get a list of all bots that Eclipse is aware of
-			@SuppressWarnings("unchecked")
-			Optional<List<BotUser>> allBots = cache.get("allBots", () -> bots.getBots(),
-					(Class<List<BotUser>>) (Object) List.class);
-			// check that we have bots to iterate over
-			if (allBots.isPresent()) {
-				// get all bot users (if any) that match the current users email
-				List<BotUser> botUsers = allBots.get().stream()
-						.filter(bot -> user.getMail().equalsIgnoreCase(bot.getEmail())).collect(Collectors.toList());
-				// if any of the bots that match the current user match the current project ID,
-				// then the user is considered a committer
-				if (botUsers.stream().anyMatch(b -> b.getProjectId().equalsIgnoreCase(p.getProjectId()))) {
-					LOGGER.debug("User '{}' was found to be a bot on current project repo '{}'", user.getName(),
-							p.getName());
-					return true;
-				}
+			// if the user is a bot registered to the current project, then the user is
+			// considered a committer
+			if (p.getProjectId() != null && botProjects.contains(p.getProjectId().toLowerCase(Locale.ROOT))) {
+				LOGGER.debug("User '{}' was found to be a bot on current project repo '{}'", user.getName(),
+						p.getName());
+				return true;
 			}
 		}
 		return false;
@@ -299,68 +939,45 @@ public class ValidationResource {
 	 * Retrieves projects valid for the current request, or an empty list if no data
 	 * or matching project repos could be found.
 	 * 
-	 * @param req the current request
-	 * @return list of matching projects for the current request, or an empty list
-	 *         if none found.
+	 * @param req      the current request
+	 * @param snapshot the current projects snapshot
+	 * @return list of access policies for matching projects for the current
+	 *         request, or an empty list if none found.
 	 */
-	private List<Project> retrieveProjectsForRequest(ValidationRequest req) {
+	private List<ProjectAccessPolicy> retrieveProjectsForRequest(ValidationRequest req, ProjectSnapshot snapshot) {
 		String repoUrl = req.getRepoUrl().getPath();
 		// check for all projects that make use of the given repo
-		List<Project> availableProjects = projects.getProjects();
-		if (availableProjects == null || availableProjects.isEmpty()) {
+		if (snapshot == null || snapshot.getProjects().isEmpty()) {
 			return Collections.emptyList();
 		}
 		LOGGER.debug("Checking projects for repos that end with: {}", repoUrl);
 
 		// filter the projects based on the repo URL. At least one repo in project must
 		// match the repo URL to be valid
-		if (ProviderType.GITLAB.equals(req.getProvider())) {
-			return availableProjects.stream()
-					.filter(p -> p.getGitlabRepos().stream().anyMatch(re -> re.getUrl().endsWith(repoUrl)))
-					.collect(Collectors.toList());
-		} else if (ProviderType.GITHUB.equals(req.getProvider())) {
-			return availableProjects.stream()
-					.filter(p -> p.getGithubRepos().stream().anyMatch(re -> re.getUrl().endsWith(repoUrl)))
-					.collect(Collectors.toList());
-		} else {
-			return availableProjects.stream()
-					.filter(p -> p.getRepos().stream().anyMatch(re -> re.getUrl().endsWith(repoUrl)))
-					.collect(Collectors.toList());
-		}
+		return snapshot.getPoliciesForRepo(req.getProvider(), repoUrl);
 	}
 
 	/**
-	 * Retrieves an Eclipse Account user object given the Git users email address
-	 * (at minimum). This is facilitated using the Eclipse Foundation accounts API,
-	 * along short lived in-memory caching for performance and some protection
-	 * against duplicate requests.
-	 * 
-	 * @param user the user to retrieve Eclipse Account information for
-	 * @return the Eclipse Account user information if found, or null if there was
-	 *         an error or no user exists.
+	 * @param req      the current request
+	 * @param snapshot the current projects snapshot
+	 * @return the scope of cached commit results for the request
 	 */
-	private EclipseUser getIdentifiedUser(GitUser user) {
-		// get the Eclipse account for the user
-		try {
-			// use cache to avoid asking for the same user repeatedly on repeated requests
-			@SuppressWarnings("unchecked")
-			Optional<List<EclipseUser>> users = cache.get("user|" + user.getMail(),
-					() -> accounts.getUsers("Bearer " + oauth.getToken(), null, null, user.getMail()),
-					(Class<List<EclipseUser>>) (Object) List.class);
-			if (!users.isPresent() || users.get().isEmpty()) {
-				LOGGER.error("No users found for mail '{}'", user.getMail());
-				return null;
-			}
-			return users.get().get(0);
-		} catch (WebApplicationException e) {
-			Response r = e.getResponse();
-			if (r != null && r.getStatus() == 404) {
-				LOGGER.error("No users found for mail '{}'", user.getMail());
-			} else {
-				LOGGER.error("Error while checking for user", e);
-			}
+	private String scopeOf(ValidationRequest req, ProjectSnapshot snapshot) {
+		return verdicts.scope(req.getProvider(), req.getRepoUrl().getPath(),
+				snapshot == null ? 0 : snapshot.getVersion());
+	}
+
+	/**
+	 * A commit of a streamed request that is being validated.
+	 */
+	private static class PendingCommit {
+		final String hash;
+		final CompletableFuture<ValidationResponse> result;
+
+		PendingCommit(String hash, CompletableFuture<ValidationResponse> result) {
+			this.hash = hash;
+			this.result = result;
 		}
-		return null;
 	}
 
 	private void addMessage(ValidationResponse r, String message, String hash) {
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.eclipsefoundation.git.eca.model.EclipseUser;
+
+/**
+ * Intermediate layer between resource and API layers that handles retrieval of
+ * Eclipse accounts, along with caching and batching of the lookups made to the
+ * accounts API.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public interface AccountsService {
+
+	/**
+	 * Retrieves the Eclipse accounts for the given mail addresses, using cached
+	 * values where available.
+	 * 
+	 * @param mails the normalized mail addresses of the users to retrieve
+	 * @return map of each of the given mail addresses to the matching Eclipse
+	 *         account, with a null value if no account could be found.
+	 */
+	Map<String, EclipseUser> getUsers(Collection<String> mails);
+}
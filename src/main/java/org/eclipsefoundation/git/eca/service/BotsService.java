@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service;
+
+import java.util.Set;
+
+/**
+ * Intermediate layer between resource and API layers that handles retrieval of
+ * all bots and indexing of that data for quick access.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public interface BotsService {
+
+	/**
+	 * Retrieves the IDs of the projects that the bot with the given mail address
+	 * is registered to. Matching of the mail address is case insensitive.
+	 * 
+	 * @param mail the mail address of the bot
+	 * @return set of lower case project IDs for the bot, or an empty set if the
+	 *         mail address does not belong to a known bot.
+	 */
+	Set<String> getBotProjects(String mail);
+}
@@ -15,60 +15,145 @@
  */
 package org.eclipsefoundation.git.eca.service;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
 
 /**
  * Interface defining the caching service to be used within the application.
+ * Values are stored in named cache regions, each with its own size and TTL.
  * 
  * @author Martin Lowe
- * @param <T> the type of object to be stored in the cache.
  */
 public interface CachingService {
 
 	/**
 	 * Returns an Optional object of type T, returning a cached object if available,
 	 * otherwise using the callable to generate a value to be stored in the cache
-	 * and returned.
+	 * and returned. Concurrent calls for the same missing key share a single call
+	 * to the callable. Cached objects that are expired but within the maximum
+	 * staleness of the region, or that are close to expiring, are returned
+	 * immediately and refreshed in the background using the callable.
 	 * 
+	 * @param region   the cache region to store the object in
 	 * @param cacheKey the cache key of the object to store in the cache
 	 * @param callable a runnable that returns an object of type T
 	 * @return the cached result
 	 */
-	<T> Optional<T> get(String cacheKey, Callable<? extends T> callable, Class<T> clazz);
+	<T> Optional<T> get(CacheRegion<T> region, String cacheKey, Callable<? extends T> callable);
+
+	/**
+	 * Asynchronous version of {@link #get(CacheRegion, String, Callable)}. Cached
+	 * objects are returned in an already completed stage, while cache misses are
+	 * loaded on a background thread. Concurrent calls for the same missing key,
+	 * whether synchronous, asynchronous or bulk, share a single load.
+	 * 
+	 * @param region   the cache region to store the object in
+	 * @param cacheKey the cache key of the object to store in the cache
+	 * @param callable a runnable that returns an object of type T
+	 * @return a stage completing with the cached result, or an empty Optional if
+	 *         no value could be loaded
+	 */
+	<T> CompletionStage<Optional<T>> getAsync(CacheRegion<T> region, String cacheKey, Callable<? extends T> callable);
+
+	/**
+	 * Returns the cached objects for the given keys, loading all missing keys with
+	 * a single call to the bulk loader. Keys that are already being loaded by
+	 * another caller are not passed to the bulk loader, and their results are
+	 * waited on instead. Values past their TTL are loaded again rather than
+	 * served stale, as they can't be refreshed in the background.
+	 * 
+	 * @param region     the cache region to store the objects in
+	 * @param cacheKeys  the cache keys of the objects to retrieve
+	 * @param bulkLoader a function that returns the objects for a set of missing
+	 *                   keys, mapped by key. Keys without a value may be left out.
+	 * @return map of cache keys to the cached objects. Keys for which no object
+	 *         could be loaded are left out.
+	 */
+	<T> Map<String, T> getAll(CacheRegion<T> region, Collection<String> cacheKeys,
+			Function<Set<String>, Map<String, T>> bulkLoader);
 
 	/**
-	 * Returns the expiration date in millis since epoch.
+	 * Returns an Optional object of type T if there is a cached value for the given
+	 * key. No value is generated on a cache miss. As there is no way to refresh
+	 * it, a value past its TTL is still returned for as long as the region keeps
+	 * stale values, e.g. so that a refresh can compare against it. Callers
+	 * needing fresh values should use the variant taking a callable.
 	 * 
+	 * @param region   the cache region of the object
+	 * @param cacheKey the cache key of the object to retrieve
+	 * @return the cached result, or an empty Optional if there is none
+	 */
+	<T> Optional<T> getIfPresent(CacheRegion<T> region, String cacheKey);
+
+	/**
+	 * Returns an Optional object of type T if there is a cached value for the given
+	 * key. No value is generated on a cache miss, but a cached value that is due
+	 * for a refresh is refreshed in the background using the callable. A refresh
+	 * returning null removes the value from the cache, while a failed refresh keeps
+	 * the current value.
+	 * 
+	 * @param region   the cache region of the object
+	 * @param cacheKey the cache key of the object to retrieve
+	 * @param callable a runnable that returns a fresh object of type T
+	 * @return the cached result, or an empty Optional if there is none
+	 */
+	<T> Optional<T> getIfPresent(CacheRegion<T> region, String cacheKey, Callable<? extends T> callable);
+
+	/**
+	 * Returns the expiration date in millis since epoch. Past this date, the value
+	 * may still be served while it is refreshed, up to the maximum staleness of the
+	 * region.
+	 * 
+	 * @param region   the cache region of the object
 	 * @param cacheKey the cache key to check for a value, and if set its
 	 *                 expiration.
 	 * @return an Optional expiration date for the current object if its set. If
 	 *         there is no underlying data, then empty would be returned
 	 */
-	Optional<Long> getExpiration(String cacheKey);
+	Optional<Long> getExpiration(CacheRegion<?> region, String cacheKey);
 
 	/**
-	 * @return the max age of cache entries
+	 * @param region the cache region to retrieve the max age for
+	 * @return the max age of cache entries in seconds for the region
 	 */
-	long getMaxAge();
+	long getMaxAge(CacheRegion<?> region);
 
 	/**
-	 * Retrieves a set of cache keys available to the current cache.
+	 * Retrieves a set of cache keys available in the given cache region.
 	 * 
+	 * @param region the cache region to retrieve keys for
 	 * @return unmodifiable set of cache entry keys.
 	 */
-	Set<String> getCacheKeys();
+	Set<String> getCacheKeys(CacheRegion<?> region);
+
+	/**
+	 * Stores the given object, replacing any cached value for the key. Loads of
+	 * the key already in progress are not waited on, and may replace the stored
+	 * value once they complete.
+	 * 
+	 * @param region   the cache region to store the object in
+	 * @param cacheKey the cache key of the object
+	 * @param value    the object to store
+	 */
+	<T> void put(CacheRegion<T> region, String cacheKey, T value);
 
 	/**
 	 * Removes cache entry for given cache entry key.
 	 * 
-	 * @param key cache entry key
+	 * @param region the cache region of the entry
+	 * @param key    cache entry key
 	 */
-	void remove(String key);
+	void remove(CacheRegion<?> region, String key);
 
 	/**
-	 * Removes all cache entries.
+	 * Removes all cache entries in all regions.
 	 */
 	void removeAll();
 }
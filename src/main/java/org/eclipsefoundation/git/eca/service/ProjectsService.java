@@ -12,6 +12,7 @@ package org.eclipsefoundation.git.eca.service;
 import java.util.List;
 
 import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.ProjectSnapshot;
 
 /**
  * Intermediate layer between resource and API layers that handles retrieval of
@@ -29,4 +30,13 @@ public interface ProjectsService {
 	 * @return list of projects available from API.
 	 */
 	List<Project> getProjects();
+
+	/**
+	 * Retrieves the current snapshot of all projects along with the indexes built
+	 * over them. If no snapshot has been loaded yet, the API is called to retrieve
+	 * a fresh copy of the data.
+	 * 
+	 * @return the current snapshot of projects available from API.
+	 */
+	ProjectSnapshot getSnapshot();
 }
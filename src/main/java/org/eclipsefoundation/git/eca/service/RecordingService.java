@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Manages on-demand Flight Recorder recordings of the service, used to profile
+ * a running instance without attaching an external profiler. Only one recording
+ * may exist at a time, and recordings are bounded in duration and size.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public interface RecordingService {
+
+	/**
+	 * @return true if Flight Recorder is available on the current runtime
+	 */
+	boolean isAvailable();
+
+	/**
+	 * @return true if a recording is currently in progress
+	 */
+	boolean isRecording();
+
+	/**
+	 * Starts a new recording, which stops by itself once the given duration has
+	 * passed. The duration is capped at the configured maximum.
+	 * 
+	 * @param seconds the duration of the recording in seconds
+	 * @return the duration of the started recording in seconds, or an empty
+	 *         optional if a recording already exists
+	 * @throws IllegalStateException if Flight Recorder is not available
+	 */
+	Optional<Long> start(long seconds);
+
+	/**
+	 * Stops the current recording if still running, and writes its data to a
+	 * temporary file. The caller is responsible for removing the file.
+	 * 
+	 * @return the path of the file holding the recording, or an empty optional if
+	 *         there is no recording
+	 * @throws IOException if the recording could not be written
+	 */
+	Optional<Path> stop() throws IOException;
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.eclipsefoundation.git.eca.model.ValidationJob;
+import org.eclipsefoundation.git.eca.model.ValidationResponse;
+
+/**
+ * Runs validation requests too large to be answered within a single HTTP call
+ * as background jobs. Jobs are processed on a bounded pool, and are retained for
+ * a configured period after completing so that their result can be retrieved.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public interface ValidationJobService {
+
+	/**
+	 * Queues a new validation job.
+	 * 
+	 * @param commitCount the number of commits in the request
+	 * @param task        the validation to run, passed the job to report
+	 *                    progress on
+	 * @return the queued job, or an empty optional if the queue is full
+	 */
+	Optional<ValidationJob> submit(int commitCount, Function<ValidationJob, ValidationResponse> task);
+
+	/**
+	 * Retrieves a job that is in progress or within its retention period.
+	 * 
+	 * @param id the ID of the job
+	 * @return the job if it exists, or an empty optional
+	 */
+	Optional<ValidationJob> get(String id);
+}
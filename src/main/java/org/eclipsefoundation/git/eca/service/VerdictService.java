@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.CommitStatus;
+import org.eclipsefoundation.git.eca.model.CommitVerdict;
+import org.eclipsefoundation.git.eca.model.EclipseUser;
+import org.eclipsefoundation.git.eca.namespace.ProviderType;
+
+/**
+ * Caches the validation result of single commits, so that commits submitted
+ * again for the same repo are answered without running the checks again.
+ * Results are scoped to the provider, repo path and projects snapshot version
+ * they were validated against, and are discarded when the bots or the accounts
+ * of the users of the commit change.
+ * 
+ * @author Martin Lowe
+ *
+ */
+public interface VerdictService {
+
+	/**
+	 * Builds the scope of the results for a request, to be passed when reading
+	 * and storing results.
+	 * 
+	 * @param provider        the provider of the request
+	 * @param repoPath        the path of the URL of the repo the commits belong
+	 *                        to
+	 * @param projectsVersion the version of the projects snapshot used to
+	 *                        validate the request
+	 * @return the scope of the results for the request
+	 */
+	String scope(ProviderType provider, String repoPath, long projectsVersion);
+
+	/**
+	 * Retrieves the generation of a user, which changes each time a change to the
+	 * account of the user is seen. Results depending on the user can include it
+	 * so that they are not used once the account has changed.
+	 * 
+	 * @param mail the normalized mail address of the user
+	 * @return the generation of the user
+	 */
+	long generation(String mail);
+
+	/**
+	 * Retrieves the cached result for a commit. The result is only returned if
+	 * the current accounts of the author and committer have the same ECA and
+	 * committer status as when the commit was validated.
+	 * 
+	 * @param scope      the scope of the request
+	 * @param c          the commit to retrieve the result for
+	 * @param identities the current Eclipse accounts of the users of the request,
+	 *                   keyed by normalized mail address
+	 * @return the status of the commit, or an empty optional if there is no
+	 *         result, or the result is no longer valid
+	 */
+	Optional<CommitStatus> get(String scope, Commit c, Map<String, EclipseUser> identities);
+
+	/**
+	 * Retrieves the cached result for a commit by its hash alone, for reading the
+	 * result of a commit that was validated earlier. As the content of the commit
+	 * is not known, the result is that of the last commit validated with the hash.
+	 * As the accounts of the users are not checked, account changes are only seen
+	 * once they have been picked up by a refresh of the users cache.
+	 * 
+	 * @param scope the scope of the request
+	 * @param hash  the hash of the commit
+	 * @return the result for the commit, or an empty optional if there is no
+	 *         result, or the result is no longer valid
+	 */
+	Optional<CommitVerdict> get(String scope, String hash);
+
+	/**
+	 * Stores the result for a commit. The given status is copied, so later changes
+	 * to it are not reflected in the cache.
+	 * 
+	 * @param scope      the scope of the request
+	 * @param c          the validated commit
+	 * @param status     the status of the commit
+	 * @param identities the Eclipse accounts the commit was validated against,
+	 *                   keyed by normalized mail address
+	 */
+	void put(String scope, Commit c, CommitStatus status, Map<String, EclipseUser> identities);
+}
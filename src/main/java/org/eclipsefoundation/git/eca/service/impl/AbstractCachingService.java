@@ -0,0 +1,544 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipsefoundation.git.eca.jfr.CacheLookupEvent;
+import org.eclipsefoundation.git.eca.jfr.JfrSupport;
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
+import org.eclipsefoundation.git.eca.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Base of the caching service implementations, which only differ in the cache
+ * backing each region. Each cache region is backed by its own cache, created on
+ * first use with the maximum size and TTL configured for the region, falling
+ * back on the global <code>cache.max.size</code> and
+ * <code>cache.ttl.write.seconds</code> values.
+ * </p>
+ *
+ * <p>
+ * Loads are tracked per key, so that concurrent synchronous, asynchronous and
+ * bulk lookups of the same missing key share a single load. Entries past their
+ * TTL are served for up to the configured maximum staleness while a single
+ * background load refreshes them, and entries accessed shortly before they
+ * expire are refreshed ahead of time.
+ * </p>
+ *
+ * @author Martin Lowe
+ *
+ */
+abstract class AbstractCachingService implements CachingService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractCachingService.class);
+
+	@ConfigProperty(name = "cache.max.size", defaultValue = "10000")
+	long maxSize;
+	@ConfigProperty(name = "cache.ttl.write.seconds", defaultValue = "900")
+	long ttlWrite;
+	@ConfigProperty(name = "cache.stale.seconds", defaultValue = "0")
+	long stale;
+	@ConfigProperty(name = "cache.refresh.ahead.seconds", defaultValue = "0")
+	long refreshAhead;
+	@ConfigProperty(name = "cache.refresh.pool.size", defaultValue = "2")
+	int refreshPoolSize;
+	@ConfigProperty(name = "cache.load.pool.size", defaultValue = "8")
+	int loadPoolSize;
+	@Inject
+	Config config;
+	@Inject
+	MetricRegistry registry;
+
+	// actual cache objects, by region name
+	private final Map<String, Region<?>> regions = new ConcurrentHashMap<>();
+	private ExecutorService refresher;
+	private ExecutorService loader;
+
+	/**
+	 * Creates the bounded pools used to refresh entries and to load entries
+	 * asynchronously.
+	 */
+	@PostConstruct
+	void init() {
+		ThreadPoolExecutor refreshPool = new ThreadPoolExecutor(refreshPoolSize, refreshPoolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(256),
+				new ThreadFactoryBuilder().setNameFormat("eca-cache-refresh-%d").setDaemon(true).build());
+		refreshPool.allowCoreThreadTimeOut(true);
+		this.refresher = refreshPool;
+		ThreadPoolExecutor loadPool = new ThreadPoolExecutor(loadPoolSize, loadPoolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(256),
+				new ThreadFactoryBuilder().setNameFormat("eca-cache-load-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		loadPool.allowCoreThreadTimeOut(true);
+		this.loader = loadPool;
+	}
+
+	@PreDestroy
+	void destroy() {
+		refresher.shutdownNow();
+		loader.shutdownNow();
+	}
+
+	/**
+	 * @return the name of the cache provider, used to tag metrics
+	 */
+	protected abstract String getProviderName();
+
+	/**
+	 * Creates the cache backing a region.
+	 *
+	 * @param maxSize          the maximum number of entries in the cache
+	 * @param expireAfterWrite the number of seconds after which entries are evicted
+	 * @return the cache backing the region
+	 */
+	protected abstract <T> RegionCache<T> createCache(long maxSize, long expireAfterWrite);
+
+	@Override
+	public <T> Optional<T> get(CacheRegion<T> region, String cacheKey, Callable<? extends T> callable) {
+		Objects.requireNonNull(cacheKey);
+		Objects.requireNonNull(callable);
+		Region<T> r = getRegion(region);
+		CacheLookupEvent event = JfrSupport.AVAILABLE ? new CacheLookupEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
+		CacheEntry<T> cached = r.cache.getIfPresent(cacheKey);
+		r.recordLookup(cached != null);
+		Optional<T> out = Optional.empty();
+		if (cached != null) {
+			refreshIfDue(r, cacheKey, cached, callable);
+			out = Optional.of(cached.value);
+		} else {
+			try {
+				// load on the calling thread, other callers wait on its result
+				out = toValue(load(r, cacheKey, callable, Runnable::run).join());
+			} catch (CompletionException e) {
+				LOGGER.error("Error while retrieving fresh value for cachekey: {}", cacheKey, e.getCause());
+			}
+		}
+		if (event != null && event.shouldCommit()) {
+			event.provider = getProviderName();
+			event.region = region.getName();
+			event.hit = cached != null;
+			event.commit();
+		}
+		return out;
+	}
+
+	@Override
+	public <T> CompletionStage<Optional<T>> getAsync(CacheRegion<T> region, String cacheKey,
+			Callable<? extends T> callable) {
+		Objects.requireNonNull(cacheKey);
+		Objects.requireNonNull(callable);
+		Region<T> r = getRegion(region);
+		CacheEntry<T> cached = r.cache.getIfPresent(cacheKey);
+		r.recordLookup(cached != null);
+		if (cached != null) {
+			refreshIfDue(r, cacheKey, cached, callable);
+			return CompletableFuture.completedFuture(Optional.of(cached.value));
+		}
+		return load(r, cacheKey, callable, loader).handle((e, ex) -> {
+			if (ex != null) {
+				LOGGER.error("Error while retrieving fresh value for cachekey: {}", cacheKey, unwrap(ex));
+				return Optional.empty();
+			}
+			return toValue(e);
+		});
+	}
+
+	@Override
+	public <T> Map<String, T> getAll(CacheRegion<T> region, Collection<String> cacheKeys,
+			Function<Set<String>, Map<String, T>> bulkLoader) {
+		Objects.requireNonNull(cacheKeys);
+		Objects.requireNonNull(bulkLoader);
+		Region<T> r = getRegion(region);
+		Map<String, T> out = new HashMap<>();
+		// keys this call is responsible for loading, and keys loaded by other callers
+		Map<String, CompletableFuture<CacheEntry<T>>> owned = new HashMap<>();
+		Map<String, CompletableFuture<CacheEntry<T>>> waiting = new HashMap<>();
+		for (String cacheKey : new LinkedHashSet<>(cacheKeys)) {
+			// entries past their TTL can't be refreshed by key, so are loaded again
+			CacheEntry<T> e = unexpired(r.cache.getIfPresent(cacheKey));
+			r.recordLookup(e != null);
+			if (e != null) {
+				out.put(cacheKey, e.value);
+				continue;
+			}
+			CompletableFuture<CacheEntry<T>> created = new CompletableFuture<>();
+			CompletableFuture<CacheEntry<T>> existing = r.inFlight.putIfAbsent(cacheKey, created);
+			if (existing != null) {
+				waiting.put(cacheKey, existing);
+				continue;
+			}
+			// a load may have completed between the cache check and the registration
+			e = unexpired(r.cache.getIfPresent(cacheKey));
+			if (e != null) {
+				r.inFlight.remove(cacheKey, created);
+				created.complete(e);
+				out.put(cacheKey, e.value);
+			} else {
+				owned.put(cacheKey, created);
+			}
+		}
+
+		if (!owned.isEmpty()) {
+			Map<String, T> loaded = Collections.emptyMap();
+			Throwable error = null;
+			long start = System.nanoTime();
+			try {
+				loaded = bulkLoader.apply(Collections.unmodifiableSet(owned.keySet()));
+			} catch (Throwable ex) {
+				// errors are also passed on, so that callers waiting on the keys are released
+				LOGGER.error("Error while retrieving fresh values for cachekeys: {}", owned.keySet(), ex);
+				error = ex;
+			}
+			r.recordLoad(System.nanoTime() - start);
+			for (Map.Entry<String, CompletableFuture<CacheEntry<T>>> o : owned.entrySet()) {
+				T value = loaded == null ? null : loaded.get(o.getKey());
+				if (value != null) {
+					CacheEntry<T> e = r.createEntry(value);
+					r.cache.put(o.getKey(), e);
+					out.put(o.getKey(), value);
+					o.getValue().complete(e);
+				} else if (error != null) {
+					o.getValue().completeExceptionally(error);
+				} else {
+					o.getValue().complete(null);
+				}
+				r.inFlight.remove(o.getKey(), o.getValue());
+			}
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+		}
+
+		waiting.forEach((cacheKey, f) -> {
+			try {
+				CacheEntry<T> e = f.join();
+				if (e != null) {
+					out.put(cacheKey, e.value);
+				}
+			} catch (CompletionException ex) {
+				LOGGER.error("Error while retrieving fresh value for cachekey: {}", cacheKey, ex.getCause());
+			}
+		});
+		return out;
+	}
+
+	@Override
+	public <T> Optional<T> getIfPresent(CacheRegion<T> region, String cacheKey) {
+		Objects.requireNonNull(cacheKey);
+		Region<T> r = getRegion(region);
+		CacheEntry<T> e = r.cache.getIfPresent(cacheKey);
+		r.recordLookup(e != null);
+		return e == null ? Optional.empty() : Optional.of(e.value);
+	}
+
+	@Override
+	public <T> Optional<T> getIfPresent(CacheRegion<T> region, String cacheKey, Callable<? extends T> callable) {
+		Objects.requireNonNull(cacheKey);
+		Objects.requireNonNull(callable);
+		Region<T> r = getRegion(region);
+		CacheEntry<T> e = r.cache.getIfPresent(cacheKey);
+		r.recordLookup(e != null);
+		if (e == null) {
+			return Optional.empty();
+		}
+		refreshIfDue(r, cacheKey, e, callable);
+		return Optional.of(e.value);
+	}
+
+	@Override
+	public Optional<Long> getExpiration(CacheRegion<?> region, String cacheKey) {
+		CacheEntry<?> e = getRegion(region).cache.getIfPresent(cacheKey);
+		return e == null ? Optional.empty() : Optional.of(e.expires);
+	}
+
+	@Override
+	public Set<String> getCacheKeys(CacheRegion<?> region) {
+		return Collections.unmodifiableSet(getRegion(region).cache.asMap().keySet());
+	}
+
+	@Override
+	public <T> void put(CacheRegion<T> region, String cacheKey, T value) {
+		Objects.requireNonNull(cacheKey);
+		Objects.requireNonNull(value);
+		Region<T> r = getRegion(region);
+		r.cache.put(cacheKey, r.createEntry(value));
+	}
+
+	@Override
+	public void remove(CacheRegion<?> region, String key) {
+		getRegion(region).cache.invalidate(key);
+	}
+
+	@Override
+	public void removeAll() {
+		regions.values().forEach(r -> r.cache.invalidateAll());
+	}
+
+	@Override
+	public long getMaxAge(CacheRegion<?> region) {
+		return getRegion(region).ttl;
+	}
+
+	/**
+	 * Retrieves the cache entry for the given key, loading it using the callable on
+	 * the given executor if missing. Freshly loaded entries are not refreshed. If
+	 * the key is already being loaded, the pending load is returned instead of
+	 * starting a new one.
+	 *
+	 * @param r        the region of the entry
+	 * @param cacheKey the cache key of the entry
+	 * @param callable a runnable that returns an object of type T
+	 * @param executor the executor to run the load on
+	 * @return a future completing with the entry, or with null if the callable
+	 *         returned null
+	 */
+	private <T> CompletableFuture<CacheEntry<T>> load(Region<T> r, String cacheKey, Callable<? extends T> callable,
+			Executor executor) {
+		CacheEntry<T> e = r.cache.getIfPresent(cacheKey);
+		if (e != null) {
+			return CompletableFuture.completedFuture(e);
+		}
+		CompletableFuture<CacheEntry<T>> created = new CompletableFuture<>();
+		CompletableFuture<CacheEntry<T>> existing = r.inFlight.putIfAbsent(cacheKey, created);
+		if (existing != null) {
+			return existing;
+		}
+		// a load may have completed between the cache check and the registration
+		e = r.cache.getIfPresent(cacheKey);
+		if (e != null) {
+			r.inFlight.remove(cacheKey, created);
+			created.complete(e);
+			return created;
+		}
+		executor.execute(() -> {
+			long start = System.nanoTime();
+			try {
+				T value = callable.call();
+				CacheEntry<T> loaded = value == null ? null : r.createEntry(value);
+				if (loaded != null) {
+					r.cache.put(cacheKey, loaded);
+				}
+				created.complete(loaded);
+			} catch (Throwable ex) {
+				// errors are also passed on, so that callers waiting on the key are released
+				created.completeExceptionally(ex);
+				if (ex instanceof Error) {
+					throw (Error) ex;
+				}
+			} finally {
+				r.recordLoad(System.nanoTime() - start);
+				r.inFlight.remove(cacheKey, created);
+			}
+		});
+		return created;
+	}
+
+	private static <T> CacheEntry<T> unexpired(CacheEntry<T> e) {
+		return e == null || e.isExpired() ? null : e;
+	}
+
+	private static <T> Optional<T> toValue(CacheEntry<T> e) {
+		return e == null ? Optional.empty() : Optional.of(e.value);
+	}
+
+	private static Throwable unwrap(Throwable t) {
+		return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+	}
+
+	/**
+	 * Refreshes the given entry in the background if it is due for a refresh,
+	 * replacing it once the refresh completes unless the entry was removed or
+	 * replaced in the meantime.
+	 *
+	 * @param r        the region of the entry
+	 * @param cacheKey the cache key of the entry
+	 * @param e        the current entry
+	 * @param callable a runnable that returns a fresh object of type T
+	 */
+	private <T> void refreshIfDue(Region<T> r, String cacheKey, CacheEntry<T> e, Callable<? extends T> callable) {
+		if (!e.startRefresh()) {
+			return;
+		}
+		try {
+			refresher.execute(() -> {
+				long start = System.nanoTime();
+				try {
+					T value = callable.call();
+					if (value == null) {
+						r.cache.asMap().remove(cacheKey, e);
+					} else {
+						r.cache.asMap().replace(cacheKey, e, r.createEntry(value));
+					}
+				} catch (Throwable ex) {
+					LOGGER.warn("Error while refreshing value for cachekey: {}, keeping current value", cacheKey, ex);
+					e.endRefresh();
+					if (ex instanceof Error) {
+						throw (Error) ex;
+					}
+				} finally {
+					r.recordLoad(System.nanoTime() - start);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			// refresh pool is saturated, the next access will try again
+			e.endRefresh();
+		}
+	}
+
+	/**
+	 * Retrieves the cache backing the given region, creating it if this is the
+	 * first time the region is used.
+	 *
+	 * @param region the region to retrieve the cache for
+	 * @return the cache for the region
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Region<T> getRegion(CacheRegion<T> region) {
+		Region<?> r = regions.computeIfAbsent(region.getName(), name -> {
+			String prefix = "cache.region." + name;
+			long regionSize = config.getOptionalValue(prefix + ".max.size", Long.class).orElse(maxSize);
+			long regionTtl = config.getOptionalValue(prefix + ".ttl.seconds", Long.class).orElse(ttlWrite);
+			long regionStale = config.getOptionalValue(prefix + ".stale.seconds", Long.class).orElse(stale);
+			long regionRefreshAhead = config.getOptionalValue(prefix + ".refresh.ahead.seconds", Long.class)
+					.orElse(refreshAhead);
+			Region<T> created = new Region<>(region, createCache(regionSize, regionTtl + regionStale), regionTtl,
+					regionStale, regionRefreshAhead,
+					CacheMetrics.counter(registry, "cache.hits", "Number of cache lookups that were hits",
+							getProviderName(), name),
+					CacheMetrics.counter(registry, "cache.misses", "Number of cache lookups that were misses",
+							getProviderName(), name));
+			CacheMetrics.register(registry, getProviderName(), name, created::hitRatio,
+					created.cache::evictionCount, created::averageLoadTime);
+			return created;
+		});
+		if (!r.region.equals(region)) {
+			throw new IllegalArgumentException(String.format("Cache region '%s' already holds values of type %s",
+					region.getName(), r.region.getType().getName()));
+		}
+		return (Region<T>) r;
+	}
+
+	/**
+	 * Operations needed from the cache backing a region. Entries are kept for up
+	 * to the maximum staleness past their TTL so that they can be served while
+	 * being refreshed.
+	 *
+	 * @param <T> the type of the cached values
+	 */
+	interface RegionCache<T> {
+		CacheEntry<T> getIfPresent(String cacheKey);
+
+		void put(String cacheKey, CacheEntry<T> entry);
+
+		void invalidate(String cacheKey);
+
+		void invalidateAll();
+
+		ConcurrentMap<String, CacheEntry<T>> asMap();
+
+		long evictionCount();
+	}
+
+	/**
+	 * Cache backing a single region, along with the loads in progress for it.
+	 */
+	private static class Region<T> {
+		final CacheRegion<T> region;
+		final RegionCache<T> cache;
+		final long ttl;
+		final long refreshAhead;
+		final ConcurrentMap<String, CompletableFuture<CacheEntry<T>>> inFlight = new ConcurrentHashMap<>();
+		final LongAdder loads = new LongAdder();
+		final LongAdder loadTime = new LongAdder();
+		final Counter hits;
+		final Counter misses;
+
+		Region(CacheRegion<T> region, RegionCache<T> cache, long ttl, long stale, long refreshAhead, Counter hits,
+				Counter misses) {
+			this.region = region;
+			this.cache = cache;
+			this.ttl = ttl;
+			this.hits = hits;
+			this.misses = misses;
+			// without staleness or refresh ahead, entries are never refreshed
+			this.refreshAhead = stale > 0 || refreshAhead > 0 ? refreshAhead : -1;
+		}
+
+		CacheEntry<T> createEntry(T value) {
+			return new CacheEntry<>(value, ttl, refreshAhead);
+		}
+
+		void recordLookup(boolean hit) {
+			if (hit) {
+				hits.inc();
+			} else {
+				misses.inc();
+			}
+		}
+
+		void recordLoad(long nanos) {
+			loads.increment();
+			loadTime.add(nanos);
+		}
+
+		/**
+		 * Computes the hit ratio from the recorded lookups rather than the stats of
+		 * the backing cache, which also count internal re-checks.
+		 *
+		 * @return the ratio of lookups that were hits
+		 */
+		double hitRatio() {
+			long h = hits.getCount();
+			long total = h + misses.getCount();
+			return total == 0 ? 1 : (double) h / total;
+		}
+
+		double averageLoadTime() {
+			long count = loads.sum();
+			return count == 0 ? 0 : (double) loadTime.sum() / count;
+		}
+	}
+}
@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Timer;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipsefoundation.git.eca.api.AccountsAPI;
+import org.eclipsefoundation.git.eca.api.ClientMetrics;
+import org.eclipsefoundation.git.eca.event.UserChangedEvent;
+import org.eclipsefoundation.git.eca.helper.CommitHelper;
+import org.eclipsefoundation.git.eca.jfr.IdentityLookupEvent;
+import org.eclipsefoundation.git.eca.jfr.JfrSupport;
+import org.eclipsefoundation.git.eca.model.EclipseUser;
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
+import org.eclipsefoundation.git.eca.service.AccountsService;
+import org.eclipsefoundation.git.eca.service.CachingService;
+import org.eclipsefoundation.git.eca.service.OAuthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>
+ * Accounts service implementation that micro-batches lookups across all
+ * in-flight requests. Uncached users are queued, and the queue is dispatched as
+ * a single bulk lookup once the batch window elapses or the batch reaches its
+ * maximum size, whichever comes first. Concurrent lookups of the same user share
+ * a single upstream lookup.
+ * </p>
+ *
+ * <p>
+ * The size of each batch and the time the first user in each batch waited
+ * before dispatch are recorded as metrics so that the window can be tuned.
+ * </p>
+ *
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class BatchingAccountsService implements AccountsService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchingAccountsService.class);
+
+	@Inject
+	@RestClient
+	AccountsAPI accounts;
+	@Inject
+	ClientMetrics metrics;
+	@Inject
+	OAuthService oauth;
+	@Inject
+	CachingService cache;
+	@Inject
+	MetricRegistry registry;
+	@Inject
+	Event<UserChangedEvent> userChanged;
+
+	@ConfigProperty(name = "accounts.bulk.enabled", defaultValue = "true")
+	boolean bulkEnabled;
+	@ConfigProperty(name = "accounts.bulk.size", defaultValue = "50")
+	int bulkSize;
+	@ConfigProperty(name = "accounts.batch.window.ms", defaultValue = "5")
+	long batchWindow;
+	@ConfigProperty(name = "accounts.pool.size", defaultValue = "8")
+	int poolSize;
+
+	private ScheduledExecutorService scheduler;
+	private ExecutorService executor;
+	private Histogram batchSizes;
+	private Timer batchWaits;
+
+	// batch state, guarded by this instance
+	private final Map<String, CompletableFuture<EclipseUser>> lookups = new HashMap<>();
+	private List<String> batch = new ArrayList<>();
+	private long batchStart;
+	private long batchGeneration;
+	private ScheduledFuture<?> scheduledDispatch;
+
+	/**
+	 * Creates the scheduler used to dispatch batches once the window elapses, and
+	 * the bounded pool that performs the upstream lookups.
+	 */
+	@PostConstruct
+	void init() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("eca-accounts-batch").setDaemon(true).build());
+		timer.setRemoveOnCancelPolicy(true);
+		this.scheduler = timer;
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(256),
+				new ThreadFactoryBuilder().setNameFormat("eca-accounts-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+		this.batchSizes = registry.histogram("accounts.batch.size");
+		this.batchWaits = registry.timer("accounts.batch.wait");
+	}
+
+	@PreDestroy
+	void destroy() {
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	@Override
+	public Map<String, EclipseUser> getUsers(Collection<String> mails) {
+		Map<String, EclipseUser> out = new HashMap<>();
+		// use cached users where available, queueing lookups for the misses
+		Map<String, CompletableFuture<EclipseUser>> pending = new HashMap<>();
+		for (String mail : mails) {
+			Optional<List<EclipseUser>> users = cache.getIfPresent(CacheRegion.USERS, mail,
+					() -> refreshUser(mail));
+			if (users.isPresent()) {
+				out.put(mail, users.get().isEmpty() ? null : users.get().get(0));
+			} else if (cache.getIfPresent(CacheRegion.UNKNOWN_USERS, mail).isPresent()) {
+				// known to have no account, no need to ask again
+				out.put(mail, null);
+			} else {
+				pending.put(mail, load(mail));
+			}
+		}
+		pending.forEach((mail, lookup) -> {
+			try {
+				out.put(mail, lookup.join());
+			} catch (CompletionException e) {
+				LOGGER.error("Error while checking for user", e);
+				out.put(mail, null);
+			}
+		});
+		return out;
+	}
+
+	/**
+	 * Queues a lookup for the given user, joining an existing lookup if one is
+	 * already queued or in progress for the same mail address.
+	 *
+	 * @param mail the normalized mail address of the user to look up
+	 * @return a future that completes with the user once its batch is processed
+	 */
+	private CompletableFuture<EclipseUser> load(String mail) {
+		List<String> ready = null;
+		CompletableFuture<EclipseUser> lookup;
+		synchronized (this) {
+			lookup = lookups.get(mail);
+			if (lookup != null) {
+				return lookup;
+			}
+			lookup = new CompletableFuture<>();
+			lookups.put(mail, lookup);
+			batch.add(mail);
+			if (batch.size() == 1) {
+				batchStart = System.nanoTime();
+			}
+			// without bulk lookups there is nothing to batch
+			if (batch.size() >= (bulkEnabled ? bulkSize : 1)) {
+				ready = takeBatch();
+			} else if (batch.size() == 1) {
+				long generation = batchGeneration;
+				scheduledDispatch = scheduler.schedule(() -> dispatch(generation), batchWindow,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+		if (ready != null) {
+			dispatch(ready);
+		}
+		return lookup;
+	}
+
+	/**
+	 * Dispatches the current batch if it is still the batch the window was
+	 * scheduled for.
+	 *
+	 * @param generation the generation of the batch the window was scheduled for
+	 */
+	private void dispatch(long generation) {
+		List<String> ready;
+		synchronized (this) {
+			if (generation != batchGeneration || batch.isEmpty()) {
+				return;
+			}
+			ready = takeBatch();
+		}
+		dispatch(ready);
+	}
+
+	/**
+	 * Takes the current batch, resetting the batch state for new lookups. Must be
+	 * called while holding the lock on this instance.
+	 *
+	 * @return the mail addresses in the current batch
+	 */
+	private List<String> takeBatch() {
+		if (scheduledDispatch != null) {
+			scheduledDispatch.cancel(false);
+			scheduledDispatch = null;
+		}
+		List<String> ready = batch;
+		batchWaits.update(System.nanoTime() - batchStart, TimeUnit.NANOSECONDS);
+		batchSizes.update(ready.size());
+		this.batch = new ArrayList<>();
+		this.batchGeneration++;
+		return ready;
+	}
+
+	/**
+	 * Looks up the given batch of users on the pool, completing the lookup of each
+	 * user once done.
+	 *
+	 * @param ready the mail addresses to look up
+	 */
+	private void dispatch(List<String> ready) {
+		executor.execute(() -> {
+			Map<String, EclipseUser> users = null;
+			Throwable error = null;
+			try {
+				users = getIdentifiedUsers(ready);
+			} catch (Throwable e) {
+				// errors are also passed on, so that callers waiting on the batch are released
+				error = e;
+			}
+			for (String mail : ready) {
+				CompletableFuture<EclipseUser> lookup;
+				synchronized (this) {
+					lookup = lookups.remove(mail);
+				}
+				if (error != null) {
+					lookup.completeExceptionally(error);
+				} else {
+					lookup.complete(users.get(mail));
+				}
+			}
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+		});
+	}
+
+	/**
+	 * Retrieves Eclipse Account user objects for the given email addresses using a
+	 * single call to the bulk accounts lookup, caching each user that is found. Any
+	 * address that could not be matched to a returned account is looked up
+	 * individually, which covers accounts whose primary mail differs from the
+	 * commit mail, as well as the bulk lookup being disabled or unavailable.
+	 *
+	 * @param mails the normalized mail addresses of the users to retrieve
+	 * @return map of normalized mail addresses to the matching Eclipse account,
+	 *         with a null value if no account could be found.
+	 */
+	private Map<String, EclipseUser> getIdentifiedUsers(List<String> mails) {
+		Map<String, EclipseUser> out = new HashMap<>();
+		if (bulkEnabled && mails.size() > 1) {
+			try {
+				List<EclipseUser> users = getUsersByMail(mails);
+				for (EclipseUser user : users) {
+					if (user.getMail() == null) {
+						continue;
+					}
+					String mail = CommitHelper.normalizeMail(user.getMail());
+					if (mails.contains(mail) && !out.containsKey(mail)) {
+						out.put(mail, user);
+						cache.get(CacheRegion.USERS, mail, () -> Collections.singletonList(user));
+					}
+				}
+			} catch (WebApplicationException | ProcessingException e) {
+				LOGGER.warn("Bulk user lookup is unavailable, falling back to individual lookups", e);
+			}
+		}
+		for (String mail : mails) {
+			if (!out.containsKey(mail)) {
+				out.put(mail, getIdentifiedUser(mail));
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Calls the bulk accounts lookup for the given mail addresses.
+	 *
+	 * @param mails the normalized mail addresses of the users to retrieve
+	 * @return the accounts that were found, empty if none were found
+	 * @throws WebApplicationException if the accounts API returned an error other
+	 *                                 than not found
+	 * @throws ProcessingException     if the accounts API could not be reached
+	 */
+	private List<EclipseUser> getUsersByMail(List<String> mails) {
+		try {
+			List<EclipseUser> users = metrics
+					.record(() -> accounts.getUsersByMail("Bearer " + oauth.getToken(), mails));
+			return users == null ? Collections.emptyList() : users;
+		} catch (WebApplicationException e) {
+			// not found means none of the addresses matched an account's primary mail
+			Response r = e.getResponse();
+			if (r != null && r.getStatus() == 404) {
+				return Collections.emptyList();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Retrieves an Eclipse Account user object given the Git users email address
+	 * (at minimum). This is facilitated using the Eclipse Foundation accounts API,
+	 * along short lived in-memory caching for performance and some protection
+	 * against duplicate requests. Addresses with no account are cached separately
+	 * with their own TTL, while upstream errors are not cached so that the next
+	 * request tries again.
+	 *
+	 * @param mail the normalized mail address of the user to retrieve Eclipse
+	 *             Account information for
+	 * @return the Eclipse Account user information if found, or null if there was
+	 *         an error or no user exists.
+	 */
+	private EclipseUser getIdentifiedUser(String mail) {
+		IdentityLookupEvent event = JfrSupport.AVAILABLE ? new IdentityLookupEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
+		EclipseUser user = null;
+		boolean failed = false;
+		// get the Eclipse account for the user
+		try {
+			List<EclipseUser> users = lookupUser(mail);
+			if (users != null) {
+				// use cache to avoid asking for the same user repeatedly on repeated requests
+				cache.get(CacheRegion.USERS, mail, () -> users);
+				user = users.get(0);
+			}
+		} catch (WebApplicationException | ProcessingException e) {
+			LOGGER.error("Error while checking for user", e);
+			failed = true;
+		}
+		if (event != null && event.shouldCommit()) {
+			event.found = user != null;
+			event.failed = failed;
+			event.commit();
+		}
+		return user;
+	}
+
+	/**
+	 * Looks up the Eclipse accounts for the given mail address, recording the
+	 * address as unknown if there are none. Also used to refresh cached users in
+	 * the background, where a null result removes the cached user.
+	 *
+	 * @param mail the normalized mail address of the user to look up
+	 * @return the accounts for the mail address, or null if there are none
+	 * @throws WebApplicationException if the accounts API returned an error other
+	 *                                 than not found
+	 * @throws ProcessingException     if the accounts API could not be reached
+	 */
+	private List<EclipseUser> lookupUser(String mail) {
+		try {
+			List<EclipseUser> users = metrics
+					.record(() -> accounts.getUsers("Bearer " + oauth.getToken(), null, null, mail));
+			if (users != null && !users.isEmpty()) {
+				return users;
+			}
+		} catch (WebApplicationException e) {
+			Response r = e.getResponse();
+			if (r == null || r.getStatus() != 404) {
+				throw e;
+			}
+		}
+		markUnknown(mail);
+		return null;
+	}
+
+	/**
+	 * Looks up the Eclipse accounts for the given mail address to refresh the
+	 * cached accounts, firing a {@link UserChangedEvent} if the ECA or committer
+	 * status of the user has changed, or the user no longer has an account.
+	 *
+	 * @param mail the normalized mail address of the user to refresh
+	 * @return the accounts for the mail address, or null if there are none
+	 */
+	private List<EclipseUser> refreshUser(String mail) {
+		Optional<List<EclipseUser>> previous = cache.getIfPresent(CacheRegion.USERS, mail);
+		List<EclipseUser> users = lookupUser(mail);
+		if (previous.isPresent() && !isSameStatus(first(previous.get()), first(users))) {
+			LOGGER.debug("Status of user '{}' has changed", mail);
+			userChanged.fire(new UserChangedEvent(mail));
+		}
+		return users;
+	}
+
+	private static EclipseUser first(List<EclipseUser> users) {
+		return users == null || users.isEmpty() ? null : users.get(0);
+	}
+
+	/**
+	 * @param a the first account, or null if there is none
+	 * @param b the second account, or null if there is none
+	 * @return true if both accounts would give the same validation result
+	 */
+	private static boolean isSameStatus(EclipseUser a, EclipseUser b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		if (a.isCommitter() != b.isCommitter()) {
+			return false;
+		}
+		if (a.getEca() == null || b.getEca() == null) {
+			return a.getEca() == b.getEca();
+		}
+		return a.getEca().isSigned() == b.getEca().isSigned()
+				&& a.getEca().isCanContributeSpecProject() == b.getEca().isCanContributeSpecProject();
+	}
+
+	/**
+	 * Records that no Eclipse account exists for the given mail address.
+	 *
+	 * @param mail the normalized mail address with no Eclipse account
+	 */
+	private void markUnknown(String mail) {
+		LOGGER.error("No users found for mail '{}'", mail);
+		cache.get(CacheRegion.UNKNOWN_USERS, mail, () -> Boolean.TRUE);
+	}
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cached value along with its expiration date in millis since epoch, shared by
+ * the caching service implementations. Entries can be due for a background
+ * refresh before they expire, and only one refresh is run at a time for an
+ * entry.
+ *
+ * @author Martin Lowe
+ *
+ * @param <T> the type of the cached value
+ */
+class CacheEntry<T> {
+	final T value;
+	final long expires;
+	private final long refreshAt;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	/**
+	 * @param value        the value to cache
+	 * @param ttl          the time to live of the value in seconds
+	 * @param refreshAhead how long before expiration in seconds the value is due
+	 *                     for a refresh, or a negative value if the value should
+	 *                     never be refreshed
+	 */
+	CacheEntry(T value, long ttl, long refreshAhead) {
+		this.value = value;
+		this.expires = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+		this.refreshAt = refreshAhead < 0 ? Long.MAX_VALUE : expires - TimeUnit.SECONDS.toMillis(refreshAhead);
+	}
+
+	/**
+	 * @return true if the entry is past its TTL, and is only kept to be served
+	 *         while being refreshed
+	 */
+	boolean isExpired() {
+		return System.currentTimeMillis() >= expires;
+	}
+
+	/**
+	 * Marks the entry as being refreshed if it is due for a refresh and no refresh
+	 * is already running.
+	 *
+	 * @return true if the caller should refresh the entry, false otherwise
+	 */
+	boolean startRefresh() {
+		return System.currentTimeMillis() >= refreshAt && refreshing.compareAndSet(false, true);
+	}
+
+	/**
+	 * Marks the refresh of the entry as done without replacing it, allowing
+	 * another refresh to be attempted.
+	 */
+	void endRefresh() {
+		refreshing.set(false);
+	}
+}
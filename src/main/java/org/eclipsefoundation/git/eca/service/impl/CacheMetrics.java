@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+/**
+ * Registers the metrics reported for each cache region. Metrics are tagged with
+ * the cache provider and region so that the caching service implementations can
+ * be compared against each other.
+ *
+ * @author Martin Lowe
+ *
+ */
+final class CacheMetrics {
+
+	private CacheMetrics() {
+	}
+
+	/**
+	 * Registers the hit ratio, eviction count and average load time gauges for a
+	 * cache region.
+	 *
+	 * @param registry    the registry to register the gauges in
+	 * @param provider    the name of the cache provider
+	 * @param region      the name of the cache region
+	 * @param hitRatio    supplier of the ratio of lookups that were hits
+	 * @param evictions   supplier of the number of evicted entries
+	 * @param loadPenalty supplier of the average time spent loading new values, in
+	 *                    nanoseconds
+	 */
+	static void register(MetricRegistry registry, String provider, String region, DoubleSupplier hitRatio,
+			LongSupplier evictions, DoubleSupplier loadPenalty) {
+		Tag[] tags = new Tag[] { new Tag("provider", provider), new Tag("region", region) };
+		registry.register(Metadata.builder().withName("cache.hit.ratio").withType(MetricType.GAUGE)
+				.withDescription("Ratio of cache lookups that were hits").build(),
+				(Gauge<Double>) hitRatio::getAsDouble, tags);
+		registry.register(Metadata.builder().withName("cache.evictions").withType(MetricType.GAUGE)
+				.withDescription("Number of entries evicted from the cache").build(),
+				(Gauge<Long>) evictions::getAsLong, tags);
+		registry.register(Metadata.builder().withName("cache.load.time").withType(MetricType.GAUGE)
+				.withUnit(MetricUnits.MILLISECONDS).withDescription("Average time spent loading new cache values")
+				.build(), (Gauge<Double>) () -> loadPenalty.getAsDouble() / TimeUnit.MILLISECONDS.toNanos(1), tags);
+	}
+
+	/**
+	 * Registers a counter for a cache region.
+	 *
+	 * @param registry    the registry to register the counter in
+	 * @param name        the name of the counter
+	 * @param description the description of the counter
+	 * @param provider    the name of the cache provider
+	 * @param region      the name of the cache region
+	 * @return the registered counter
+	 */
+	static Counter counter(MetricRegistry registry, String name, String description, String provider,
+			String region) {
+		return registry.counter(Metadata.builder().withName(name).withType(MetricType.COUNTER)
+				.withDescription(description).build(), new Tag("provider", provider), new Tag("region", region));
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.Locale;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.git.eca.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Produces the caching service used by the application, selected using the
+ * <code>cache.provider</code> property. Supported providers are
+ * <code>caffeine</code> and <code>guava</code>.
+ *
+ * @author Martin Lowe
+ *
+ */
+@ApplicationScoped
+public class CachingServiceProducer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachingServiceProducer.class);
+
+	@ConfigProperty(name = "cache.provider", defaultValue = "caffeine")
+	String provider;
+
+	@Inject
+	CaffeineCachingService caffeine;
+	@Inject
+	GuavaCachingService guava;
+
+	@Produces
+	@ApplicationScoped
+	public CachingService cachingService() {
+		switch (provider.toLowerCase(Locale.ROOT)) {
+			case "caffeine":
+				LOGGER.info("Using Caffeine caching service");
+				return caffeine;
+			case "guava":
+				LOGGER.info("Using Guava caching service");
+				return guava;
+			default:
+				throw new IllegalStateException(String.format("Unknown cache provider '%s'", provider));
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.git.eca.event.BotsChangedEvent;
+import org.eclipsefoundation.git.eca.event.UserChangedEvent;
+import org.eclipsefoundation.git.eca.helper.CommitHelper;
+import org.eclipsefoundation.git.eca.helper.RequestDigest;
+import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.CommitStatus;
+import org.eclipsefoundation.git.eca.model.CommitVerdict;
+import org.eclipsefoundation.git.eca.model.CommitVerdict.UserState;
+import org.eclipsefoundation.git.eca.model.EclipseUser;
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
+import org.eclipsefoundation.git.eca.namespace.ProviderType;
+import org.eclipsefoundation.git.eca.service.CachingService;
+import org.eclipsefoundation.git.eca.service.VerdictService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Verdict service storing results in the {@link CacheRegion#VERDICTS} cache
+ * region. The repo path is used as given, as it is also what projects are
+ * matched against. Can be turned off using <code>verdicts.enabled</code>.
+ * </p>
+ *
+ * <p>
+ * Rather than tracking which results depend on which users, a generation is
+ * kept for the bots and for each user that has changed, and is bumped on the
+ * matching change event. The bots generation is part of the scope, while each
+ * result records the generations of its users, and is discarded on read if
+ * either has changed since. Results read for a commit also record the account
+ * status of its users, and are discarded if the accounts resolved for the
+ * current request differ, so a change seen by the users cache is never masked
+ * by a stored result. The generation of a user is forgotten once every result
+ * recorded before the change has expired.
+ * </p>
+ *
+ * @author Martin Lowe
+ *
+ */
+@ApplicationScoped
+public class CachingVerdictService implements VerdictService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CachingVerdictService.class);
+
+	@Inject
+	CachingService cache;
+
+	@ConfigProperty(name = "verdicts.enabled", defaultValue = "true")
+	boolean enabled;
+
+	private final AtomicLong botsGeneration = new AtomicLong();
+	// generations are never reused, so that forgetting one can't revive old results
+	private final AtomicLong userSequence = new AtomicLong();
+	// generations of the users that have changed recently, by normalized mail address
+	private final ConcurrentMap<String, Generation> userGenerations = new ConcurrentHashMap<>();
+
+	@Override
+	public String scope(ProviderType provider, String repoPath, long projectsVersion) {
+		return provider.getValue() + '|' + repoPath + '|' + projectsVersion + '|' + botsGeneration.get();
+	}
+
+	@Override
+	public long generation(String mail) {
+		return generationOf(mail);
+	}
+
+	@Override
+	public Optional<CommitStatus> get(String scope, Commit c, Map<String, EclipseUser> identities) {
+		if (!CommitHelper.validateCommit(c)) {
+			return Optional.empty();
+		}
+		String contentHash = RequestDigest.of(c);
+		return get(scope, c.getHash()).filter(v -> v.getContentHash().equals(contentHash))
+				.filter(v -> isCurrent(v.getAuthor(), identities) && isCurrent(v.getCommitter(), identities))
+				.map(CommitVerdict::getStatus);
+	}
+
+	@Override
+	public Optional<CommitVerdict> get(String scope, String hash) {
+		if (!enabled || hash == null) {
+			return Optional.empty();
+		}
+		String key = scope + '|' + hash;
+		Optional<CommitVerdict> verdict = cache.getIfPresent(CacheRegion.VERDICTS, key);
+		if (!verdict.isPresent()) {
+			return Optional.empty();
+		}
+		CommitVerdict v = verdict.get();
+		if (generationChanged(v.getAuthor()) || generationChanged(v.getCommitter())) {
+			LOGGER.debug("Discarding result for commit {} as its users have changed", hash);
+			cache.remove(CacheRegion.VERDICTS, key);
+			return Optional.empty();
+		}
+		return verdict;
+	}
+
+	@Override
+	public void put(String scope, Commit c, CommitStatus status, Map<String, EclipseUser> identities) {
+		if (!enabled || !CommitHelper.validateCommit(c)) {
+			return;
+		}
+		CommitStatus copy = new CommitStatus();
+		copy.merge(status);
+		// users are not checked for merge commits
+		UserState author = null;
+		UserState committer = null;
+		if (c.getParents().size() <= 1) {
+			author = stateOf(CommitHelper.normalizeMail(c.getAuthor().getMail()), identities);
+			committer = stateOf(CommitHelper.normalizeMail(c.getCommitter().getMail()), identities);
+		}
+		CommitVerdict verdict = new CommitVerdict(copy, RequestDigest.of(c), author, committer);
+		cache.put(CacheRegion.VERDICTS, scope + '|' + c.getHash(), verdict);
+	}
+
+	/**
+	 * Invalidates all results, as the bots are part of every check.
+	 * 
+	 * @param event the change event
+	 */
+	void onBotsChanged(@Observes BotsChangedEvent event) {
+		LOGGER.debug("Bots have changed, invalidating cached commit results");
+		botsGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Invalidates the results of the commits of the changed user.
+	 * 
+	 * @param event the change event
+	 */
+	void onUserChanged(@Observes UserChangedEvent event) {
+		LOGGER.debug("User '{}' has changed, invalidating cached commit results", event.getMail());
+		long now = System.currentTimeMillis();
+		userGenerations.put(event.getMail(), new Generation(userSequence.incrementAndGet(), now));
+		// results recorded against older generations have expired by now, so the
+		// users can be treated as unchanged again
+		long retention = TimeUnit.SECONDS
+				.toMillis(Math.max(cache.getMaxAge(CacheRegion.VERDICTS), cache.getMaxAge(CacheRegion.RESPONSES)));
+		userGenerations.values().removeIf(g -> g.changed < now - retention);
+	}
+
+	private UserState stateOf(String mail, Map<String, EclipseUser> identities) {
+		return new UserState(mail, statusOf(identities.get(mail)), generationOf(mail));
+	}
+
+	/**
+	 * @param user the state of a user when a commit was validated, or null if the
+	 *             user was not checked
+	 * @return true if the user has changed since the commit was validated
+	 */
+	private boolean generationChanged(UserState user) {
+		return user != null && generationOf(user.getMail()) != user.getGeneration();
+	}
+
+	/**
+	 * @param user       the state of a user when a commit was validated, or null if
+	 *                   the user was not checked
+	 * @param identities the current Eclipse accounts of the users of the request
+	 * @return true if the current account of the user has the same status as when
+	 *         the commit was validated
+	 */
+	private static boolean isCurrent(UserState user, Map<String, EclipseUser> identities) {
+		return user == null || Objects.equals(user.getStatus(), statusOf(identities.get(user.getMail())));
+	}
+
+	/**
+	 * @param user the Eclipse account of a user, or null if there is none
+	 * @return the parts of the account used in validation, or null if there is no
+	 *         account
+	 */
+	private static String statusOf(EclipseUser user) {
+		if (user == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		// the name is matched against project committers, the mail against sign offs
+		sb.append("name=").append(user.getName());
+		sb.append(";mail=").append(user.getMail());
+		sb.append(";committer=").append(user.isCommitter());
+		if (user.getEca() != null) {
+			sb.append(";eca=").append(user.getEca().isSigned());
+			sb.append(";spec=").append(user.getEca().isCanContributeSpecProject());
+		}
+		return sb.toString();
+	}
+
+	private long generationOf(String mail) {
+		Generation g = mail == null ? null : userGenerations.get(mail);
+		return g == null ? 0 : g.value;
+	}
+
+	/**
+	 * Generation of a user, along with the time the change was seen.
+	 */
+	private static class Generation {
+		final long value;
+		final long changed;
+
+		Generation(long value, long changed) {
+			this.value = value;
+			this.changed = changed;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * <p>
+ * Caching service implemented using Caffeine caches. Caffeine uses a
+ * frequency-aware admission policy (W-TinyLFU), so a scan of rarely seen keys,
+ * such as a mass re-validation of open pull requests, does not evict the
+ * frequently used entries that make up most of the traffic.
+ * </p>
+ *
+ * <p>
+ * Cache size and time to live are configured per cache region in the same way
+ * as for the {@linkplain GuavaCachingService}. Used when
+ * <code>cache.provider</code> is set to <code>caffeine</code>.
+ * </p>
+ *
+ * @author Martin Lowe
+ *
+ */
+@Typed(CaffeineCachingService.class)
+@ApplicationScoped
+public class CaffeineCachingService extends AbstractCachingService {
+
+	@Override
+	protected String getProviderName() {
+		return "caffeine";
+	}
+
+	@Override
+	protected <T> RegionCache<T> createCache(long maxSize, long expireAfterWrite) {
+		// run maintenance on the calling threads rather than the common pool, which
+		// can be starved on small containers and would let the cache grow unbounded
+		Cache<String, CacheEntry<T>> cache = Caffeine.newBuilder().maximumSize(maxSize)
+				.expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS).executor(Runnable::run).recordStats().build();
+		return new RegionCache<T>() {
+			@Override
+			public CacheEntry<T> getIfPresent(String cacheKey) {
+				return cache.getIfPresent(cacheKey);
+			}
+
+			@Override
+			public void put(String cacheKey, CacheEntry<T> entry) {
+				cache.put(cacheKey, entry);
+			}
+
+			@Override
+			public void invalidate(String cacheKey) {
+				cache.invalidate(cacheKey);
+			}
+
+			@Override
+			public void invalidateAll() {
+				cache.invalidateAll();
+			}
+
+			@Override
+			public ConcurrentMap<String, CacheEntry<T>> asMap() {
+				return cache.asMap();
+			}
+
+			@Override
+			public long evictionCount() {
+				return cache.stats().evictionCount();
+			}
+		};
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipsefoundation.git.eca.api.BotsAPI;
+import org.eclipsefoundation.git.eca.api.ClientMetrics;
+import org.eclipsefoundation.git.eca.event.BotsChangedEvent;
+import org.eclipsefoundation.git.eca.model.BotUser;
+import org.eclipsefoundation.git.eca.service.BotsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.quarkus.runtime.Startup;
+
+/**
+ * Bots service implementation that loads all bots on startup and refreshes them
+ * on a background thread. Bots are indexed by mail address, and each refresh
+ * replaces the index as a whole so that request threads never wait on the bots
+ * API. A {@link BotsChangedEvent} is fired when a refresh changes the bots.
+ * 
+ * @author Martin Lowe
+ */
+@Startup
+@ApplicationScoped
+public class DefaultBotsService implements BotsService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultBotsService.class);
+
+	@Inject
+	@RestClient
+	BotsAPI bots;
+	@Inject
+	ClientMetrics metrics;
+	@Inject
+	Event<BotsChangedEvent> botsChanged;
+
+	@ConfigProperty(name = "bots.refresh.seconds", defaultValue = "900")
+	long refreshInterval;
+	@ConfigProperty(name = "bots.refresh.retry.seconds", defaultValue = "60")
+	long retryInterval;
+
+	private ScheduledExecutorService scheduler;
+	// index of lower case bot mail addresses to lower case project IDs
+	private volatile Map<String, Set<String>> index = Collections.emptyMap();
+
+	/**
+	 * Loads the bots and schedules the background refresh. If a load fails, the
+	 * next refresh is made after the shorter retry interval, and no bots will be
+	 * recognized until the initial load succeeds.
+	 */
+	@PostConstruct
+	public void init() {
+		LOGGER.debug("Starting pre-cache of bots");
+		this.scheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("eca-bots-refresh").setDaemon(true).build());
+		scheduleRefresh(refresh() ? refreshInterval : retryInterval);
+	}
+
+	@PreDestroy
+	void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	@Override
+	public Set<String> getBotProjects(String mail) {
+		if (mail == null) {
+			return Collections.emptySet();
+		}
+		return index.getOrDefault(mail.toLowerCase(Locale.ROOT), Collections.emptySet());
+	}
+
+	/**
+	 * Schedules the next refresh of the bots.
+	 * 
+	 * @param delay the delay in seconds before the next refresh
+	 */
+	private void scheduleRefresh(long delay) {
+		scheduler.schedule(() -> scheduleRefresh(refresh() ? refreshInterval : retryInterval), delay,
+				TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Retrieves the bots from the API and replaces the current index. On failure,
+	 * or if no bots are returned, the current index is kept.
+	 * 
+	 * @return true if the index was refreshed, false otherwise
+	 */
+	private boolean refresh() {
+		try {
+			List<BotUser> all = metrics.record(bots::getBots);
+			if (all == null || all.isEmpty()) {
+				LOGGER.warn("No bots returned from API, keeping current bots");
+				return false;
+			}
+			Map<String, Set<String>> next = new HashMap<>();
+			for (BotUser bot : all) {
+				if (bot.getEmail() != null && bot.getProjectId() != null) {
+					next.computeIfAbsent(bot.getEmail().toLowerCase(Locale.ROOT), k -> new HashSet<>())
+							.add(bot.getProjectId().toLowerCase(Locale.ROOT));
+				}
+			}
+			next.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+			boolean changed = !next.equals(index);
+			this.index = Collections.unmodifiableMap(next);
+			LOGGER.debug("Loaded {} bots", all.size());
+			if (changed) {
+				botsChanged.fire(new BotsChangedEvent());
+			}
+			return true;
+		} catch (RuntimeException e) {
+			LOGGER.error("Unable to refresh bots, keeping current bots", e);
+			return false;
+		}
+	}
+}
@@ -10,10 +10,17 @@
 package org.eclipsefoundation.git.eca.service.impl;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Singleton;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -25,11 +32,20 @@ import org.slf4j.LoggerFactory;
 import com.github.scribejava.core.builder.ServiceBuilder;
 import com.github.scribejava.core.model.OAuth2AccessToken;
 import com.github.scribejava.core.oauth.OAuth20Service;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Default implementation for requesting an OAuth request token. The reason that
  * this class is implemented over the other implementations baked into Quarkus
  * 
+ * <p>
+ * The current token is held in an atomic reference so that reads never lock.
+ * Tokens are renewed in the background once a configurable fraction of their
+ * lifetime has passed, retrying with an exponential backoff while the current
+ * token is still valid. Callers only block when there is no valid token, and
+ * concurrent renewals share a single request to the OAuth server.
+ * </p>
+ * 
  * @author Martin Lowe
  *
  */
@@ -43,48 +59,164 @@ public class DefaultOAuthService implements OAuthService {
 	String secret;
 	@ConfigProperty(name = "oauth2.scope")
 	String scope;
+	@ConfigProperty(name = "oauth2.renewal.fraction", defaultValue = "0.75")
+	double renewalFraction;
+	@ConfigProperty(name = "oauth2.renewal.backoff.initial.ms", defaultValue = "1000")
+	long initialBackoff;
+	@ConfigProperty(name = "oauth2.renewal.backoff.max.ms", defaultValue = "60000")
+	long maxBackoff;
+	@ConfigProperty(name = "oauth2.token.default.lifetime.seconds", defaultValue = "300")
+	long defaultLifetime;
 
 	// service reference (as we only need one)
 	private OAuth20Service service;
+	private ScheduledExecutorService scheduler;
 
 	// token state vars
-	private long expirationTime;
-	private String accessToken;
+	private final AtomicReference<Token> token = new AtomicReference<>();
+	private final AtomicReference<CompletableFuture<Token>> renewal = new AtomicReference<>();
+	private ScheduledFuture<?> scheduledRenewal;
 
 	/**
-	 * Create an OAuth service reference.
+	 * Create an OAuth service reference, and the scheduler used to renew tokens.
 	 */
 	@PostConstruct
 	void createServiceRef() {
 		this.service = new ServiceBuilder(id).apiSecret(secret).scope(scope).build(EclipseApi.instance());
+		this.scheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("eca-oauth-renewal").setDaemon(true).build());
+	}
+
+	@PreDestroy
+	void destroy() {
+		scheduler.shutdownNow();
 	}
 
 	@Override
 	public String getToken() {
-		// lock on the class instance to stop multiple threads from requesting new
-		// tokens at the same time
-		synchronized (this) {
-			if (accessToken == null || System.currentTimeMillis() >= expirationTime) {
-				// clear access token
-				this.accessToken = null;
-				try {
-					OAuth2AccessToken requestToken = service.getAccessTokenClientCredentialsGrant();
-					if (requestToken != null) {
-						this.accessToken = requestToken.getAccessToken();
-						this.expirationTime = System.currentTimeMillis()
-								+ TimeUnit.SECONDS.toMillis(requestToken.getExpiresIn().longValue());
-					}
-				} catch (IOException e) {
-					LOGGER.error("Issue communicating with OAuth server for authentication", e);
-				} catch (InterruptedException e) {
-					LOGGER.error("Authentication communication was interrupted before completion", e);
-					Thread.currentThread().interrupt();
-				} catch (ExecutionException e) {
-					LOGGER.error("Error while retrieving access token for request", e);
+		Token current = token.get();
+		if (current != null && current.isValid()) {
+			return current.accessToken;
+		}
+		// no valid token, wait on a renewal
+		try {
+			return renew(current).join().accessToken;
+		} catch (CompletionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Renews the given token, joining the renewal in progress if there is one.
+	 * A new renewal is run on the calling thread, unless the token has already
+	 * been replaced by a valid one since the caller read it.
+	 * 
+	 * @param previous the token to replace, or null if there was none
+	 * @return a future completing with the new token
+	 */
+	private CompletableFuture<Token> renew(Token previous) {
+		CompletableFuture<Token> created = new CompletableFuture<>();
+		while (!renewal.compareAndSet(null, created)) {
+			CompletableFuture<Token> existing = renewal.get();
+			if (existing != null) {
+				return existing;
+			}
+		}
+		try {
+			// a renewal may have completed between the caller's read and the
+			// registration
+			Token current = token.get();
+			if (current != previous && current != null && current.isValid()) {
+				created.complete(current);
+				return created;
+			}
+			Token next = requestToken();
+			token.set(next);
+			// tokens without a lifetime are renewed on demand
+			if (next.lifetime > 0) {
+				scheduleRenewal(next.renewalDelay(renewalFraction), initialBackoff);
+			}
+			created.complete(next);
+		} catch (RuntimeException e) {
+			created.completeExceptionally(e);
+		} finally {
+			renewal.set(null);
+		}
+		return created;
+	}
+
+	/**
+	 * Schedules the background renewal of the token, replacing any renewal that
+	 * was already scheduled.
+	 * 
+	 * @param delay   the delay in milliseconds before the renewal
+	 * @param backoff the delay in milliseconds before retrying if the renewal fails
+	 */
+	private synchronized void scheduleRenewal(long delay, long backoff) {
+		if (scheduledRenewal != null) {
+			scheduledRenewal.cancel(false);
+		}
+		this.scheduledRenewal = scheduler.schedule(() -> {
+			try {
+				renew(token.get()).join();
+			} catch (CompletionException e) {
+				// retry while the current token can still be used, after which
+				// renewals are triggered by requests for the token again
+				Token current = token.get();
+				if (current != null && current.isValid()) {
+					LOGGER.warn("Unable to renew OAuth token, retrying in {}ms", backoff);
+					scheduleRenewal(backoff, Math.min(backoff * 2, maxBackoff));
 				}
 			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Requests a new token from the OAuth server.
+	 * 
+	 * @return the new token
+	 * @throws IllegalStateException if no token could be retrieved
+	 */
+	private Token requestToken() {
+		try {
+			OAuth2AccessToken requestToken = service.getAccessTokenClientCredentialsGrant();
+			if (requestToken != null) {
+				// assume a default lifetime when the server doesn't give one
+				Integer expiresIn = requestToken.getExpiresIn();
+				return new Token(requestToken.getAccessToken(),
+						TimeUnit.SECONDS.toMillis(expiresIn == null ? defaultLifetime : expiresIn.longValue()));
+			}
+		} catch (IOException e) {
+			LOGGER.error("Issue communicating with OAuth server for authentication", e);
+		} catch (InterruptedException e) {
+			LOGGER.error("Authentication communication was interrupted before completion", e);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOGGER.error("Error while retrieving access token for request", e);
 		}
-		return accessToken;
+		throw new IllegalStateException("Could not retrieve an access token");
 	}
 
+	/**
+	 * Immutable access token along with the time it was issued and its lifetime.
+	 */
+	private static class Token {
+		final String accessToken;
+		final long issuedTime;
+		final long lifetime;
+
+		Token(String accessToken, long lifetime) {
+			this.accessToken = accessToken;
+			this.issuedTime = System.currentTimeMillis();
+			this.lifetime = lifetime;
+		}
+
+		boolean isValid() {
+			return System.currentTimeMillis() < issuedTime + lifetime;
+		}
+
+		long renewalDelay(double fraction) {
+			return Math.max(0, issuedTime + (long) (lifetime * fraction) - System.currentTimeMillis());
+		}
+	}
 }
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.git.eca.model.ValidationJob;
+import org.eclipsefoundation.git.eca.model.ValidationResponse;
+import org.eclipsefoundation.git.eca.namespace.JobStatus;
+import org.eclipsefoundation.git.eca.service.ValidationJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Validation job service keeping jobs in memory. Jobs are processed on a pool of
+ * <code>validation.jobs.pool.size</code> threads, with at most
+ * <code>validation.jobs.queue.size</code> jobs waiting, after which new jobs are
+ * rejected. Finished jobs are removed once
+ * <code>validation.jobs.retention.seconds</code> have passed since they
+ * completed. As jobs are held in memory, they are only available from the
+ * instance that accepted them.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@ApplicationScoped
+public class DefaultValidationJobService implements ValidationJobService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultValidationJobService.class);
+
+	@ConfigProperty(name = "validation.jobs.pool.size", defaultValue = "2")
+	int poolSize;
+	@ConfigProperty(name = "validation.jobs.queue.size", defaultValue = "16")
+	int queueSize;
+	@ConfigProperty(name = "validation.jobs.retention.seconds", defaultValue = "3600")
+	long retention;
+
+	private final ConcurrentMap<String, ValidationJob> jobs = new ConcurrentHashMap<>();
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	void init() {
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize),
+				new ThreadFactoryBuilder().setNameFormat("eca-jobs-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	void destroy() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public Optional<ValidationJob> submit(int commitCount, Function<ValidationJob, ValidationResponse> task) {
+		expire();
+		ValidationJob job = new ValidationJob(UUID.randomUUID().toString(), commitCount);
+		jobs.put(job.getId(), job);
+		try {
+			executor.execute(() -> run(job, task));
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Validation job queue is full, rejecting job of {} commits", commitCount);
+			jobs.remove(job.getId());
+			return Optional.empty();
+		}
+		LOGGER.debug("Queued validation job {} of {} commits", job.getId(), commitCount);
+		return Optional.of(job);
+	}
+
+	@Override
+	public Optional<ValidationJob> get(String id) {
+		expire();
+		return Optional.ofNullable(jobs.get(id));
+	}
+
+	private void run(ValidationJob job, Function<ValidationJob, ValidationResponse> task) {
+		job.setStatus(JobStatus.RUNNING);
+		try {
+			job.complete(task.apply(job));
+			LOGGER.debug("Completed validation job {}", job.getId());
+		} catch (Throwable e) {
+			// errors also fail the job, so that it is reported and expired
+			LOGGER.error("Error while processing validation job {}", job.getId(), e);
+			job.fail();
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+		}
+	}
+
+	/**
+	 * Removes the jobs that completed longer ago than the retention period.
+	 */
+	private void expire() {
+		long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(retention);
+		Iterator<ValidationJob> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			ValidationJob job = it.next();
+			if (job.getCompleted() != null && job.getCompleted().getTime() < cutoff) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.git.eca.jfr.JfrSupport;
+import org.eclipsefoundation.git.eca.service.RecordingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Recording service backed by the Flight Recorder of the running JVM.
+ * Recordings use the given JFR settings (<code>profile</code> by default) with
+ * the duration capped by <code>admin.recording.max.duration.seconds</code> and
+ * the size kept on disk capped by <code>admin.recording.max.size.mb</code>.
+ * Flight Recorder types are only used once the runtime is known to support
+ * them.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@ApplicationScoped
+public class FlightRecordingService implements RecordingService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecordingService.class);
+
+	@ConfigProperty(name = "admin.recording.max.duration.seconds", defaultValue = "300")
+	long maxDuration;
+	@ConfigProperty(name = "admin.recording.max.size.mb", defaultValue = "64")
+	long maxSize;
+	@ConfigProperty(name = "admin.recording.settings", defaultValue = "profile")
+	String settings;
+
+	private Recording recording;
+
+	@PreDestroy
+	synchronized void destroy() {
+		if (recording != null) {
+			recording.close();
+			recording = null;
+		}
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return JfrSupport.AVAILABLE;
+	}
+
+	@Override
+	public synchronized boolean isRecording() {
+		return recording != null && recording.getState() == RecordingState.RUNNING;
+	}
+
+	@Override
+	public synchronized Optional<Long> start(long seconds) {
+		if (!isAvailable()) {
+			throw new IllegalStateException("Flight Recorder is not available on the current runtime");
+		}
+		if (recording != null) {
+			return Optional.empty();
+		}
+		long duration = seconds > 0 ? Math.min(seconds, maxDuration) : maxDuration;
+		Recording r;
+		try {
+			r = new Recording(Configuration.getConfiguration(settings));
+		} catch (IOException | ParseException e) {
+			throw new IllegalStateException("Could not load Flight Recorder settings '" + settings + "'", e);
+		}
+		r.setName("eca-admin");
+		r.setToDisk(true);
+		r.setDuration(Duration.ofSeconds(duration));
+		r.setMaxSize(maxSize * 1024 * 1024);
+		r.start();
+		this.recording = r;
+		LOGGER.info("Started Flight Recorder recording for {}s", duration);
+		return Optional.of(duration);
+	}
+
+	@Override
+	public synchronized Optional<Path> stop() throws IOException {
+		if (recording == null) {
+			return Optional.empty();
+		}
+		Recording r = recording;
+		this.recording = null;
+		try {
+			if (r.getState() == RecordingState.RUNNING) {
+				r.stop();
+			}
+			Path out = Files.createTempFile("eca-", ".jfr");
+			r.dump(out);
+			LOGGER.info("Stopped Flight Recorder recording, wrote {} bytes", Files.size(out));
+			return Optional.of(out);
+		} finally {
+			r.close();
+		}
+	}
+}
@@ -9,32 +9,59 @@
  ******************************************************************************/
 package org.eclipsefoundation.git.eca.service.impl;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Response;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Timer;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipsefoundation.git.eca.api.ClientMetrics;
 import org.eclipsefoundation.git.eca.api.ProjectsAPI;
+import org.eclipsefoundation.git.eca.helper.ProjectSnapshotFile;
+import org.eclipsefoundation.git.eca.jfr.JfrSupport;
+import org.eclipsefoundation.git.eca.jfr.ProjectsRefreshEvent;
 import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.ProjectSnapshot;
 import org.eclipsefoundation.git.eca.service.ProjectsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import io.quarkus.runtime.Startup;
 
 /**
  * Projects service implementation that handles pagination of data manually, as
- * well as makes use of a loading cache to have data be always available with as
- * little latency to the user as possible.
+ * well as keeps a snapshot of the data that is rebuilt on a dedicated thread to
+ * have data be always available with as little latency to the user as possible.
+ * Each rebuilt snapshot, along with its indexes, is published with an atomic
+ * swap so that requests never wait on a refresh.
  * 
  * @author Martin Lowe
  */
@@ -46,62 +73,315 @@ public class PagintationProjectsService implements ProjectsService {
 	@Inject
 	@RestClient
 	ProjectsAPI projects;
-	// this class has a separate cache as this data is long to load and should be
-	// always available.
-	LoadingCache<String, List<Project>> internalCache;
+	@Inject
+	ClientMetrics metrics;
+	@Inject
+	MetricRegistry registry;
+
+	@ConfigProperty(name = "projects.refresh.seconds", defaultValue = "3600")
+	long refreshInterval;
+	@ConfigProperty(name = "projects.refresh.jitter.seconds", defaultValue = "300")
+	long refreshJitter;
+	@ConfigProperty(name = "projects.refresh.retry.seconds", defaultValue = "60")
+	long retryInterval;
+	@ConfigProperty(name = "projects.snapshot.enabled", defaultValue = "true")
+	boolean persistSnapshot;
+	@ConfigProperty(name = "projects.snapshot.path", defaultValue = "/tmp/git-eca/projects.snapshot")
+	String snapshotPath;
+	@ConfigProperty(name = "projects.page.size", defaultValue = "100")
+	int pageSize;
+	@ConfigProperty(name = "projects.fetch.parallelism", defaultValue = "4")
+	int parallelism;
+	@ConfigProperty(name = "projects.max.pages", defaultValue = "100")
+	int maxPages;
+
+	// this class keeps its own snapshot as this data is long to load and should be
+	// always available. Indexes and access policies are built alongside the data
+	// on each load.
+	private final AtomicReference<ProjectSnapshot> snapshot = new AtomicReference<>();
+	private final AtomicLong versions = new AtomicLong();
+	private volatile long lastBuildDuration = -1;
+	private volatile int lastPageCount = -1;
+	private ScheduledExecutorService scheduler;
+	private ExecutorService executor;
+	private Timer fetchTimes;
 
 	/**
-	 * Initializes the internal loader cache and pre-populates the data with the one
-	 * available key. If more than one key is used, eviction of previous results
-	 * will happen and create degraded performance.
+	 * Pre-populates the project snapshot, and schedules the background refresh of
+	 * the data. When a valid snapshot was persisted by a previous run, it is served
+	 * immediately and refreshed in the background. Refreshes are jittered so that
+	 * multiple instances of the service do not refresh at the same time.
 	 */
 	@PostConstruct
 	public void init() {
-		// set up the internal cache
-		this.internalCache = CacheBuilder.newBuilder().maximumSize(1).refreshAfterWrite(3600, TimeUnit.SECONDS)
-				.build(new CacheLoader<String, List<Project>>() {
-					@Override
-					public List<Project> load(String key) throws Exception {
-						return getProjectsInternal();
-					}
-				});
+		this.scheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("eca-projects-refresh").setDaemon(true).build());
+		this.executor = Executors.newFixedThreadPool(parallelism,
+				new ThreadFactoryBuilder().setNameFormat("eca-projects-fetch-%d").setDaemon(true).build());
+		registerMetrics();
+
+		// serve the last good snapshot if there is one, and refresh it right away
+		if (persistSnapshot) {
+			Optional<ProjectSnapshot> persisted = ProjectSnapshotFile.read(Paths.get(snapshotPath),
+					versions.incrementAndGet());
+			if (persisted.isPresent()) {
+				snapshot.set(persisted.get());
+				LOGGER.info("Restored {} projects from snapshot at '{}'", persisted.get().getProjects().size(),
+						snapshotPath);
+				scheduler.execute(() -> scheduleRefresh(refresh() ? refreshInterval : retryInterval));
+				return;
+			}
+		}
 
 		// pre-cache the projects to reduce load time for other users
 		LOGGER.debug("Starting pre-cache of projects");
-		if (getProjects() == null) {
+		boolean loaded = refresh();
+		if (!loaded) {
 			LOGGER.warn(
 					"Unable to populate pre-cache for Eclipse projects. Calls may experience degraded performance.");
 		}
 		LOGGER.debug("Completed pre-cache of projects assets");
+		scheduleRefresh(loaded ? refreshInterval : retryInterval);
+	}
+
+	@PreDestroy
+	void destroy() {
+		scheduler.shutdownNow();
+		executor.shutdownNow();
 	}
 
 	@Override
 	public List<Project> getProjects() {
+		return getSnapshot().getProjects();
+	}
+
+	@Override
+	public ProjectSnapshot getSnapshot() {
+		ProjectSnapshot current = snapshot.get();
+		if (current == null) {
+			current = loadInitialSnapshot();
+		}
+		return current;
+	}
+
+	/**
+	 * Loads the snapshot on the calling thread. This only happens when no snapshot
+	 * could be loaded yet, as there is no data to serve in the meantime.
+	 * 
+	 * @return the loaded snapshot
+	 */
+	private synchronized ProjectSnapshot loadInitialSnapshot() {
+		ProjectSnapshot current = snapshot.get();
+		if (current == null && !refresh()) {
+			throw new RuntimeException("Could not load Eclipse projects");
+		}
+		return snapshot.get();
+	}
+
+	/**
+	 * Schedules the next refresh of the snapshot, adding a random jitter to the
+	 * delay.
+	 * 
+	 * @param delay the minimum delay in seconds before the next refresh
+	 */
+	private void scheduleRefresh(long delay) {
+		long jitter = refreshJitter > 0 ? ThreadLocalRandom.current().nextLong(refreshJitter + 1) : 0;
+		scheduler.schedule(() -> scheduleRefresh(refresh() ? refreshInterval : retryInterval), delay + jitter,
+				TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Rebuilds the snapshot from the API and publishes it, persisting it for the
+	 * next startup when enabled. The snapshot only gets a new version if its
+	 * projects changed. On failure, the current snapshot is kept.
+	 * 
+	 * @return true if the snapshot was rebuilt, false otherwise
+	 */
+	private boolean refresh() {
+		long start = System.nanoTime();
+		ProjectsRefreshEvent event = JfrSupport.AVAILABLE ? new ProjectsRefreshEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
+		boolean refreshed = false;
+		try {
+			List<Project> fetched = getProjectsInternal();
+			// keep the version when nothing changed, so results cached against it stay
+			ProjectSnapshot current = snapshot.get();
+			boolean unchanged = current != null && current.getContentHash().equals(ProjectSnapshot.digest(fetched));
+			ProjectSnapshot next = new ProjectSnapshot(fetched,
+					unchanged ? current.getVersion() : versions.incrementAndGet());
+			snapshot.set(next);
+			this.lastBuildDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			LOGGER.info("Loaded {} projects in {}ms", next.getProjects().size(), lastBuildDuration);
+			persist(next);
+			refreshed = true;
+		} catch (RuntimeException e) {
+			LOGGER.error("Unable to refresh Eclipse projects, keeping current data", e);
+		}
+		if (event != null && event.shouldCommit()) {
+			ProjectSnapshot current = snapshot.get();
+			event.projectCount = current == null ? 0 : current.getProjects().size();
+			event.pageCount = lastPageCount;
+			event.succeeded = refreshed;
+			event.commit();
+		}
+		return refreshed;
+	}
+
+	/**
+	 * Writes the given snapshot to disk if enabled. Failures are logged, as the
+	 * snapshot is still served from memory.
+	 * 
+	 * @param next the snapshot to persist
+	 */
+	private void persist(ProjectSnapshot next) {
+		if (!persistSnapshot) {
+			return;
+		}
 		try {
-			return internalCache.get("projects");
-		} catch (ExecutionException e) {
-			throw new RuntimeException("Could not load Eclipse projects", e);
+			ProjectSnapshotFile.write(Paths.get(snapshotPath), next);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to persist projects snapshot to '{}'", snapshotPath, e);
 		}
 	}
 
 	/**
-	 * Logic for retrieving projects from API. Will loop until there are no more
-	 * projects to be found
+	 * Registers gauges for the age of the current snapshot and the time taken to
+	 * build it.
+	 */
+	private void registerMetrics() {
+		registry.register(Metadata.builder().withName("projects.snapshot.age").withType(MetricType.GAUGE)
+				.withUnit(MetricUnits.SECONDS).withDescription("Age of the current projects snapshot").build(),
+				(Gauge<Long>) () -> {
+					ProjectSnapshot current = snapshot.get();
+					return current == null ? -1
+							: TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - current.getCreatedTime());
+				});
+		registry.register(Metadata.builder().withName("projects.snapshot.build.duration").withType(MetricType.GAUGE)
+				.withUnit(MetricUnits.MILLISECONDS).withDescription("Time taken to build the current projects snapshot")
+				.build(), (Gauge<Long>) () -> lastBuildDuration);
+		registry.register(Metadata.builder().withName("projects.fetch.pages").withType(MetricType.GAUGE)
+				.withDescription("Number of pages fetched for the current projects snapshot").build(),
+				(Gauge<Integer>) () -> lastPageCount);
+		this.fetchTimes = registry.timer("projects.fetch.time");
+	}
+
+	/**
+	 * Logic for retrieving projects from API. Pages are fetched concurrently, using
+	 * the link to the last page from the response headers to know how many pages
+	 * to fetch when available. Otherwise, pages are fetched in waves until an empty
+	 * page is found. No more than <code>projects.max.pages</code> pages are
+	 * fetched.
 	 * 
-	 * @return list of projects for the
+	 * @return list of projects in page order
 	 */
 	private List<Project> getProjectsInternal() {
-		int page = 0;
-		int pageSize = 100;
-		List<Project> out = new LinkedList<>();
-		List<Project> in;
-		do {
-			page++;
-			in = projects.getProject(page, pageSize);
-			out.addAll(in);
-		} while (in != null && !in.isEmpty());
+		long start = System.nanoTime();
+		List<List<Project>> pages = new ArrayList<>();
+		int lastPage = getLastPage();
+		boolean probe = true;
+		if (lastPage > 0) {
+			pages.addAll(fetchPages(1, lastPage));
+			// trust the page count unless projects were added since it was read
+			probe = pages.get(pages.size() - 1).size() >= pageSize;
+		}
+		// probe until an empty page, as pages before the end may be short
+		while (probe) {
+			if (pages.size() >= maxPages) {
+				LOGGER.warn("Stopped fetching projects after {} pages, more may be available", maxPages);
+				break;
+			}
+			int to = Math.min(pages.size() + parallelism, maxPages);
+			for (List<Project> page : fetchPages(pages.size() + 1, to)) {
+				if (page.isEmpty()) {
+					probe = false;
+					break;
+				}
+				pages.add(page);
+			}
+		}
+		// assemble the pages into a single list
+		List<Project> out = new ArrayList<>(pages.stream().mapToInt(List::size).sum());
+		pages.forEach(out::addAll);
+
+		long duration = System.nanoTime() - start;
+		fetchTimes.update(duration, TimeUnit.NANOSECONDS);
+		this.lastPageCount = pages.size();
+		LOGGER.info("Fetched {} projects over {} pages in {}ms", out.size(), pages.size(),
+				TimeUnit.NANOSECONDS.toMillis(duration));
+		return out;
+	}
+
+	/**
+	 * Fetches the given range of pages concurrently.
+	 * 
+	 * @param from the first page to fetch, inclusive
+	 * @param to   the last page to fetch, inclusive
+	 * @return the fetched pages in page order, with an empty list for pages that
+	 *         had no results
+	 */
+	private List<List<Project>> fetchPages(int from, int to) {
+		List<CompletableFuture<List<Project>>> futures = new ArrayList<>(to - from + 1);
+		for (int page = from; page <= to; page++) {
+			int current = page;
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				List<Project> in = metrics.record(() -> projects.getProject(current, pageSize));
+				return in == null ? Collections.<Project>emptyList() : in;
+			}, executor));
+		}
+		List<List<Project>> out = new ArrayList<>(futures.size());
+		for (CompletableFuture<List<Project>> future : futures) {
+			try {
+				out.add(future.join());
+			} catch (CompletionException e) {
+				throw new RuntimeException("Error while fetching page of Eclipse projects", e.getCause());
+			}
+		}
 		return out;
+	}
 
+	/**
+	 * Retrieves the number of the last page of projects from the pagination
+	 * headers of the API, using either the link to the last page or the total
+	 * count of projects. Page counts above <code>projects.max.pages</code> are
+	 * treated as implausible, so that the pages are probed for instead.
+	 * 
+	 * @return the last page of projects, or -1 if it could not be determined
+	 */
+	private int getLastPage() {
+		int lastPage = readLastPage();
+		if (lastPage > maxPages) {
+			LOGGER.warn("Ignoring implausible page count of {} for projects, probing for pages instead", lastPage);
+			return -1;
+		}
+		return lastPage;
 	}
 
+	/**
+	 * Reads the number of the last page of projects from the pagination headers.
+	 * 
+	 * @return the last page of projects as given by the API, or -1 if it could not
+	 *         be read
+	 */
+	private int readLastPage() {
+		try {
+			Response r = metrics.record(() -> projects.getProjectPagination(1, pageSize));
+			Link last = r.getLink("last");
+			if (last != null && last.getUri().getRawQuery() != null) {
+				for (String param : last.getUri().getRawQuery().split("&")) {
+					if (param.startsWith("page=")) {
+						return Integer.parseInt(param.substring("page=".length()));
+					}
+				}
+			}
+			String total = r.getHeaderString("X-Total-Count");
+			if (total != null) {
+				return (Integer.parseInt(total.trim()) + pageSize - 1) / pageSize;
+			}
+		} catch (RuntimeException e) {
+			LOGGER.debug("Could not retrieve pagination headers for projects, probing for pages instead", e);
+		}
+		return -1;
+	}
 }
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.api;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.inject.Inject;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.GitUser;
+import org.eclipsefoundation.git.eca.model.ValidationRequest;
+import org.eclipsefoundation.git.eca.namespace.ProviderType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.RestAssured;
+
+/**
+ * Tests related to the {@linkplain ClientMetrics} recorded by the
+ * {@linkplain ClientMetricsFilter}. As the API interfaces are mocked in tests,
+ * calls are made against the validation endpoint using a plain client with the
+ * filter registered.
+ *
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class ClientMetricsTest {
+
+	@Inject
+	MetricRegistry registry;
+	@Inject
+	ClientMetrics metrics;
+
+	@Test
+	void recordsCompletedCall() throws Exception {
+		Client client = ClientBuilder.newClient().register(new ClientMetricsFilter());
+		try {
+			Response r = client.target(RestAssured.baseURI + ':' + RestAssured.port + RestAssured.basePath + "/eca")
+					.request().property(ClientMetrics.INVOKED_METHOD_PROPERTY, BotsAPI.class.getMethod("getBots"))
+					.post(Entity.json(createRequest()));
+			// read the body so that received bytes are counted
+			Assertions.assertFalse(r.readEntity(String.class).isEmpty());
+			Assertions.assertEquals(200, r.getStatus());
+		} finally {
+			client.close();
+		}
+
+		Tag api = new Tag("api", "BotsAPI");
+		Timer t = registry.getTimers().get(new MetricID("client.call.time", api, new Tag("status", "200")));
+		Assertions.assertNotNull(t, "Expected a timer for the API and status");
+		Assertions.assertEquals(1, t.getCount());
+		Assertions.assertTrue(registry.getCounters().get(new MetricID("client.bytes.received", api)).getCount() > 0,
+				"Expected received bytes to be counted");
+		Assertions.assertEquals(0, registry.getGauges().get(new MetricID("client.calls.inflight", api)).getValue());
+	}
+
+	@Test
+	void expiresUnansweredCall() throws Exception {
+		Client client = ClientBuilder.newClient().register(new ClientMetricsFilter());
+		try {
+			// nothing listens on port 1, so no response is ever received
+			client.target("http://localhost:1/eca").request()
+					.property(ClientMetrics.INVOKED_METHOD_PROPERTY, AccountsAPI.class.getMethod("getUsers",
+							String.class, String.class, String.class, String.class))
+					.post(Entity.json(createRequest()));
+			Assertions.fail("Expected the call to fail");
+		} catch (ProcessingException e) {
+			// expected, the connection is refused
+		} finally {
+			client.close();
+		}
+
+		Tag api = new Tag("api", "AccountsAPI");
+		Gauge<?> inFlight = registry.getGauges().get(new MetricID("client.calls.inflight", api));
+		// the failed call is only dropped once the in flight timeout has passed
+		Thread.sleep(200);
+		Assertions.assertEquals(0, inFlight.getValue());
+		Assertions.assertEquals(1, registry.getCounters().get(new MetricID("client.calls.unanswered", api)).getCount());
+	}
+
+	@Test
+	void recordsFailedCall() throws Exception {
+		Client client = ClientBuilder.newClient().register(new ClientMetricsFilter());
+		Method method = ProjectsAPI.class.getMethod("getProject", int.class, int.class);
+		Entity<ValidationRequest> body = Entity.json(createRequest());
+		try {
+			// nothing listens on port 1, so no response is ever received
+			metrics.record(() -> client.target("http://localhost:1/eca").request()
+					.property(ClientMetrics.INVOKED_METHOD_PROPERTY, method).post(body));
+			Assertions.fail("Expected the call to fail");
+		} catch (ProcessingException e) {
+			// expected, the connection is refused
+		} finally {
+			client.close();
+		}
+
+		// the failure is recorded straight away, without waiting on the in flight timeout
+		Tag api = new Tag("api", "ProjectsAPI");
+		Assertions.assertEquals(0, registry.getGauges().get(new MetricID("client.calls.inflight", api)).getValue());
+		Assertions.assertEquals(1, registry.getCounters().get(new MetricID("client.calls.unanswered", api)).getCount());
+		Timer t = registry.getTimers().get(new MetricID("client.call.time", api, new Tag("status", "error")));
+		Assertions.assertNotNull(t, "Expected a timer for the failed call");
+		Assertions.assertEquals(1, t.getCount());
+	}
+
+	private ValidationRequest createRequest() throws URISyntaxException {
+		GitUser g1 = new GitUser();
+		g1.setName("The Wizard");
+		g1.setMail("code.wiz@important.co");
+
+		Commit c1 = new Commit();
+		c1.setAuthor(g1);
+		c1.setCommitter(g1);
+		c1.setBody("Signed-off-by: The Wizard <code.wiz@important.co>");
+		c1.setHash("123456789abcdefghijklmnop");
+		c1.setSubject("All of the things");
+		c1.setParents(Collections.emptyList());
+
+		ValidationRequest vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(Arrays.asList(c1));
+		return vr;
+	}
+}
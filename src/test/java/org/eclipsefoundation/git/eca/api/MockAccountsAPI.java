@@ -11,10 +11,13 @@ package org.eclipsefoundation.git.eca.api;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.eclipsefoundation.git.eca.model.EclipseUser;
@@ -28,6 +31,12 @@ import io.quarkus.test.Mock;
 public class MockAccountsAPI implements AccountsAPI {
 
 	private List<EclipseUser> src;
+	// tracks number of calls made to the mock API
+	private AtomicInteger calls = new AtomicInteger();
+	private AtomicInteger bulkCalls = new AtomicInteger();
+	private AtomicInteger requestedMails = new AtomicInteger();
+	private boolean bulkAvailable = true;
+	private boolean available = true;
 	
 	@PostConstruct
 	public void build() {
@@ -81,10 +90,32 @@ public class MockAccountsAPI implements AccountsAPI {
 		e6.setName("sumAnalyst");
 		e6.setEca(new ECA(true, false));
 		src.add(e6);
+
+		// bot accounts, correlates to bots in Mock bots API
+		EclipseUser e7 = new EclipseUser();
+		e7.setCommitter(false);
+		e7.setId(id++);
+		e7.setMail("1.bot@eclipse.org");
+		e7.setName("projbot");
+		e7.setEca(new ECA());
+		src.add(e7);
+
+		EclipseUser e8 = new EclipseUser();
+		e8.setCommitter(false);
+		e8.setId(id++);
+		e8.setMail("2.bot@eclipse.org");
+		e8.setName("protobot");
+		e8.setEca(new ECA());
+		src.add(e8);
 	}
 	
 	@Override
 	public List<EclipseUser> getUsers(String authBearer, String id, String name, String mail) {
+		calls.incrementAndGet();
+		requestedMails.incrementAndGet();
+		if (!available) {
+			throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+		}
 		return src.stream().filter(user -> {
 			boolean matches = true;
 			if (id != null && !Integer.toString(user.getId()).equals(id)) {
@@ -100,4 +131,66 @@ public class MockAccountsAPI implements AccountsAPI {
 		}).collect(Collectors.toList());
 	}
 
+	@Override
+	public List<EclipseUser> getUsersByMail(String authBearer, List<String> mails) {
+		if (!bulkAvailable) {
+			throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+		}
+		bulkCalls.incrementAndGet();
+		requestedMails.addAndGet(mails.size());
+		List<EclipseUser> matches = src.stream().filter(user -> mails.contains(user.getMail()))
+				.collect(Collectors.toList());
+		// like the profile endpoint, nothing found is a not found response
+		if (matches.isEmpty()) {
+			throw new WebApplicationException(Status.NOT_FOUND);
+		}
+		return matches;
+	}
+
+	/**
+	 * @return the number of single user calls made to this API since the last reset
+	 */
+	public int getCallCount() {
+		return calls.get();
+	}
+
+	/**
+	 * @return the number of bulk calls made to this API since the last reset
+	 */
+	public int getBulkCallCount() {
+		return bulkCalls.get();
+	}
+
+	/**
+	 * @return the number of mail addresses requested from this API since the last
+	 *         reset
+	 */
+	public int getRequestedMailCount() {
+		return requestedMails.get();
+	}
+
+	/**
+	 * Resets the count of calls made to this API.
+	 */
+	public void resetCallCount() {
+		calls.set(0);
+		bulkCalls.set(0);
+		requestedMails.set(0);
+	}
+
+	/**
+	 * @param bulkAvailable whether the bulk lookup should respond, or fail as if the
+	 *                      endpoint did not exist
+	 */
+	public void setBulkAvailable(boolean bulkAvailable) {
+		this.bulkAvailable = bulkAvailable;
+	}
+
+	/**
+	 * @param available whether the single user lookup should respond, or fail as if
+	 *                  the API was unavailable
+	 */
+	public void setAvailable(boolean available) {
+		this.available = available;
+	}
 }
@@ -16,6 +16,7 @@ import java.util.List;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.core.Response;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.eclipsefoundation.git.eca.model.Project;
@@ -85,4 +86,13 @@ public class MockProjectsAPI implements ProjectsAPI {
 		return page == 1 ? new ArrayList<>(src) : Collections.emptyList();
 	}
 
+	@Override
+	public Response getProjectPagination(int page, int pageSize) {
+		// all projects fit on the first page
+		return Response.ok()
+				.header("Link", String.format("<https://projects.eclipse.org/api/projects?page=1&pagesize=%d>; rel=\"last\"",
+						pageSize))
+				.build();
+	}
+
 }
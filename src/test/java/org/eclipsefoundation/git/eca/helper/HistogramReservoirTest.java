@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests related to the {@linkplain HistogramReservoir} class.
+ *
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class HistogramReservoirTest {
+
+	@Test
+	void bucketsCoverValues() {
+		// every value should fall in a bucket whose range contains it
+		long[] values = new long[] { 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L, (1L << 41) - 1 };
+		for (long value : values) {
+			int bucket = HistogramReservoir.bucketOf(value);
+			Assertions.assertTrue(HistogramReservoir.lowestValueOf(bucket) <= value, "Bucket starts after " + value);
+			Assertions.assertTrue(bucket == HistogramReservoir.BUCKETS - 1
+					|| HistogramReservoir.lowestValueOf(bucket + 1) > value, "Bucket ends before " + value);
+		}
+		Assertions.assertEquals(HistogramReservoir.BUCKETS - 1, HistogramReservoir.bucketOf(Long.MAX_VALUE));
+	}
+
+	@Test
+	void percentilesWithinError() {
+		HistogramReservoir reservoir = new HistogramReservoir(1, TimeUnit.MINUTES, 5);
+		for (long i = 1; i <= 100000; i++) {
+			reservoir.update(i * 1000);
+		}
+		Snapshot s = reservoir.getSnapshot();
+		Assertions.assertEquals(100000, s.size());
+		Assertions.assertEquals(1000, s.getMin());
+		Assertions.assertEquals(100000000, s.getMax());
+		Assertions.assertEquals(50000500, s.getMean(), 1);
+		assertWithinError(50000000, s.getMedian());
+		assertWithinError(95000000, s.get95thPercentile());
+		assertWithinError(99900000, s.get999thPercentile());
+		Assertions.assertEquals(100000000, s.getValue(1.0), 0);
+	}
+
+	@Test
+	void concurrentUpdatesCounted() throws Exception {
+		HistogramReservoir reservoir = new HistogramReservoir(1, TimeUnit.MINUTES, 5);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					for (int i = 0; i < 25000; i++) {
+						reservoir.update(i % 100);
+					}
+				}, pool));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdownNow();
+		}
+		Snapshot s = reservoir.getSnapshot();
+		Assertions.assertEquals(100000, s.size(), "Expected no updates to be lost");
+		Assertions.assertEquals(0, s.getMin());
+		Assertions.assertEquals(99, s.getMax());
+		Assertions.assertEquals(49.5, s.getMean(), 0.001);
+	}
+
+	@Test
+	void oldWindowsExpire() {
+		AtomicLong now = new AtomicLong(0);
+		HistogramReservoir reservoir = new HistogramReservoir(1, TimeUnit.SECONDS, 3, now::get);
+		reservoir.update(10);
+		now.set(1000);
+		reservoir.update(20);
+		Assertions.assertEquals(2, reservoir.getSnapshot().size());
+
+		// the first window falls out of the ring
+		now.set(3000);
+		Snapshot s = reservoir.getSnapshot();
+		Assertions.assertEquals(1, s.size());
+		Assertions.assertEquals(20, s.getMin());
+
+		// reusing a window clears its previous values
+		reservoir.update(30);
+		now.set(4500);
+		s = reservoir.getSnapshot();
+		Assertions.assertEquals(1, s.size());
+		Assertions.assertEquals(30, s.getMax());
+	}
+
+	private static void assertWithinError(double expected, double actual) {
+		Assertions.assertEquals(expected, actual, expected * 0.04);
+	}
+}
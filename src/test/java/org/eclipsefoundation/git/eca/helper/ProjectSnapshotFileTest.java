@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.Project.Repo;
+import org.eclipsefoundation.git.eca.model.Project.User;
+import org.eclipsefoundation.git.eca.model.ProjectAccessPolicy;
+import org.eclipsefoundation.git.eca.model.ProjectSnapshot;
+import org.eclipsefoundation.git.eca.namespace.ProviderType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests related to the {@linkplain ProjectSnapshotFile} class.
+ *
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class ProjectSnapshotFileTest {
+
+	Path dir;
+	Path file;
+	ProjectSnapshot snapshot;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("eca-snapshot");
+		file = dir.resolve("projects.snapshot");
+
+		Repo r1 = new Repo();
+		r1.setUrl("http://www.github.com/eclipsefdn/sample");
+		Repo r2 = new Repo();
+		r2.setUrl("https://gitlab.eclipse.org/eclipsefdn/sample");
+		User u1 = new User();
+		u1.setUsername("da_wizz");
+		u1.setUrl("");
+
+		Project p1 = new Project();
+		p1.setProjectId("sample.proj");
+		p1.setName("Sample project ✓");
+		p1.setGithubRepos(Arrays.asList(r1));
+		p1.setGitlabRepos(Arrays.asList(r2));
+		p1.setCommitters(Arrays.asList(u1));
+		Project p2 = new Project();
+		p2.setProjectId("spec.proj");
+		p2.setSpecWorkingGroup("proj1");
+		snapshot = new ProjectSnapshot(Arrays.asList(p1, p2), 1);
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void readRestoresSnapshot() throws IOException {
+		ProjectSnapshotFile.write(file, snapshot);
+		Optional<ProjectSnapshot> read = ProjectSnapshotFile.read(file, 5);
+
+		Assertions.assertTrue(read.isPresent());
+		Assertions.assertEquals(5, read.get().getVersion());
+		Assertions.assertEquals(snapshot.getCreatedTime(), read.get().getCreatedTime());
+		Assertions.assertEquals(2, read.get().getProjects().size());
+		Assertions.assertEquals(snapshot.getContentHash(), read.get().getContentHash());
+
+		Project p1 = read.get().getProjects().get(0);
+		Assertions.assertEquals("sample.proj", p1.getProjectId());
+		Assertions.assertEquals("Sample project ✓", p1.getName());
+		Assertions.assertNull(p1.getSpecWorkingGroup());
+		Assertions.assertEquals("da_wizz", p1.getCommitters().get(0).getUsername());
+		Project p2 = read.get().getProjects().get(1);
+		Assertions.assertNull(p2.getName());
+		Assertions.assertEquals("proj1", p2.getSpecWorkingGroup());
+
+		// indexes and policies are rebuilt on load
+		ProjectAccessPolicy policy = read.get().getPoliciesForRepo(ProviderType.GITLAB, "/eclipsefdn/sample").get(0);
+		Assertions.assertEquals("sample.proj", policy.getProject().getProjectId());
+		Assertions.assertTrue(policy.isCommitter("da_wizz"));
+		Assertions.assertEquals(1, read.get().getPoliciesForRepo(ProviderType.GITHUB, "/eclipsefdn/sample").size());
+	}
+
+	@Test
+	public void contentHashCoversCommitters() {
+		Project p = snapshot.getProjects().get(0);
+		User u = new User();
+		u.setUsername("grunter");
+		u.setUrl("");
+		Project changed = new Project();
+		changed.setProjectId(p.getProjectId());
+		changed.setName(p.getName());
+		changed.setGithubRepos(p.getGithubRepos());
+		changed.setGitlabRepos(p.getGitlabRepos());
+		changed.setCommitters(Arrays.asList(p.getCommitters().get(0), u));
+
+		Assertions.assertEquals(snapshot.getContentHash(),
+				new ProjectSnapshot(snapshot.getProjects(), 2).getContentHash());
+		Assertions.assertNotEquals(snapshot.getContentHash(),
+				new ProjectSnapshot(Arrays.asList(changed, snapshot.getProjects().get(1)), 2).getContentHash());
+	}
+
+	@Test
+	public void readDiscardsCorruptSnapshot() throws IOException {
+		ProjectSnapshotFile.write(file, snapshot);
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[bytes.length - 3] ^= 0x5A;
+		Files.write(file, bytes);
+
+		Assertions.assertFalse(ProjectSnapshotFile.read(file, 1).isPresent());
+	}
+
+	@Test
+	public void readDiscardsTruncatedSnapshot() throws IOException {
+		ProjectSnapshotFile.write(file, snapshot);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+		Assertions.assertFalse(ProjectSnapshotFile.read(file, 1).isPresent());
+	}
+
+	@Test
+	public void readDiscardsOtherFormatVersion() throws IOException {
+		ProjectSnapshotFile.write(file, snapshot);
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(4, ProjectSnapshotFile.FORMAT_VERSION + 1);
+		Files.write(file, bytes);
+
+		Assertions.assertFalse(ProjectSnapshotFile.read(file, 1).isPresent());
+	}
+
+	@Test
+	public void readMissingSnapshot() {
+		Assertions.assertFalse(ProjectSnapshotFile.read(file, 1).isPresent());
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipsefoundation.git.eca.model.Project;
+import org.eclipsefoundation.git.eca.model.Project.Repo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests related to the {@linkplain RepoIndex} class. Results are compared
+ * against a linear scan of the repos using {@link String#endsWith(String)}.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class RepoIndexTest {
+
+	List<Project> projects;
+	RepoIndex index;
+
+	@BeforeEach
+	public void setup() {
+		projects = new ArrayList<>();
+		projects.add(createProject("sample.proj", "http://www.github.com/eclipsefdn/sample",
+				"http://www.github.com/eclipsefdn/test"));
+		projects.add(createProject("sample.proto", "http://www.github.com/eclipsefdn/prototype"));
+		projects.add(createProject("spec.proj", "http://www.github.com/eclipsefdn/tck-proto",
+				"https://github.com/eclipsefdn/sample"));
+		projects.add(createProject("empty.proj"));
+		projects.add(createProject("dupe.proj", "http://www.github.com/other/test",
+				"http://www.github.com/other/test"));
+		index = new RepoIndex(projects, Project::getGithubRepos);
+	}
+
+	@Test
+	public void getProjectsMatchesEndsWith() {
+		for (String path : Arrays.asList("/eclipsefdn/sample", "/eclipsefdn/test", "/test", "test", "/prototype",
+				"proto", "/eclipsefdn/prototype", "github.com/eclipsefdn/sample", "/missing", "", "/",
+				"http://www.github.com/eclipsefdn/sample", "xhttp://www.github.com/eclipsefdn/sample")) {
+			Assertions.assertEquals(getProjectIds(linearScan(path)), getProjectIds(index.getProjects(path)),
+					String.format("Expected index results to match linear scan for path '%s'", path));
+		}
+	}
+
+	@Test
+	public void getProjectsMultipleOwners() {
+		List<Project> results = index.getProjects("/eclipsefdn/sample");
+		Assertions.assertEquals(Arrays.asList("sample.proj", "spec.proj"), getProjectIds(results),
+				"Expected all projects owning the repo in original order");
+	}
+
+	@Test
+	public void getProjectsDuplicateRepos() {
+		List<Project> results = index.getProjects("/other/test");
+		Assertions.assertEquals(Arrays.asList("dupe.proj"), getProjectIds(results),
+				"Expected project with duplicate repos to be returned once");
+	}
+
+	@Test
+	public void getProjectsNoMatch() {
+		Assertions.assertTrue(index.getProjects("/eclipsefdn/missing").isEmpty(), "Expected no matching projects");
+	}
+
+	private List<Project> linearScan(String path) {
+		return projects.stream().filter(p -> p.getGithubRepos().stream().anyMatch(r -> r.getUrl().endsWith(path)))
+				.collect(Collectors.toList());
+	}
+
+	private List<String> getProjectIds(List<Project> projects) {
+		return projects.stream().map(Project::getProjectId).collect(Collectors.toList());
+	}
+
+	private Project createProject(String id, String... urls) {
+		List<Repo> repos = new ArrayList<>();
+		for (String url : urls) {
+			Repo r = new Repo();
+			r.setUrl(url);
+			repos.add(r);
+		}
+		Project p = new Project();
+		p.setProjectId(id);
+		p.setName(id);
+		p.setGithubRepos(repos);
+		return p;
+	}
+}
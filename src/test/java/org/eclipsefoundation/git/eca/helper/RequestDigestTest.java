@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.GitUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests related to the {@linkplain RequestDigest} class.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class RequestDigestTest {
+	private static final String SCOPE = "github|/eclipsefdn/sample|1|0";
+
+	Commit baseCommit;
+
+	@BeforeEach
+	public void setup() {
+		GitUser testUser = new GitUser();
+		testUser.setMail("test.user@eclipse-foundation.org");
+		testUser.setName("Tester McTesterson");
+
+		baseCommit = new Commit();
+		baseCommit.setBody(
+				String.format("Sample body content\n\nSigned-off-by: %s <%s>", testUser.getName(), testUser.getMail()));
+		baseCommit.setHash("abc123f");
+		baseCommit.setParents(new ArrayList<>());
+		baseCommit.setSubject("Testing RequestDigest class");
+		baseCommit.setAuthor(testUser);
+		baseCommit.setCommitter(testUser);
+	}
+
+	@Test
+	public void digestIgnoresUnusedFields() {
+		String digest = RequestDigest.of(SCOPE, Collections.singletonList(baseCommit));
+		baseCommit.setSubject("Another subject");
+		baseCommit.setBody(baseCommit.getBody().replace("Sample", "Other"));
+		Assertions.assertEquals(digest, RequestDigest.of(SCOPE, Collections.singletonList(baseCommit)),
+				"Expected fields not used in validation to be left out of the digest");
+	}
+
+	@Test
+	public void digestCoversValidatedFields() {
+		String digest = RequestDigest.of(SCOPE, Collections.singletonList(baseCommit));
+		Assertions.assertNotEquals(digest, RequestDigest.of("gitlab|/eclipsefdn/sample|1|0",
+				Collections.singletonList(baseCommit)), "Expected the scope to change the digest");
+
+		baseCommit.setBody("Signed-off-by: Someone Else <someone@eclipse-foundation.org>");
+		String signOff = RequestDigest.of(SCOPE, Collections.singletonList(baseCommit));
+		Assertions.assertNotEquals(digest, signOff, "Expected the sign off footer to change the digest");
+
+		baseCommit.setParents(Arrays.asList("def456a", "789bcde"));
+		Assertions.assertNotEquals(signOff, RequestDigest.of(SCOPE, Collections.singletonList(baseCommit)),
+				"Expected the parents to change the digest");
+	}
+
+	@Test
+	public void digestCoversCommitOrder() {
+		Commit other = new Commit();
+		other.setHash("def456a");
+		other.setAuthor(baseCommit.getAuthor());
+		other.setCommitter(baseCommit.getCommitter());
+		other.setBody(baseCommit.getBody());
+		other.setParents(Collections.singletonList(baseCommit.getHash()));
+		Assertions.assertNotEquals(RequestDigest.of(SCOPE, Arrays.asList(baseCommit, other)),
+				RequestDigest.of(SCOPE, Arrays.asList(other, baseCommit)));
+	}
+
+	@Test
+	public void commitDigestCoversUsers() {
+		String digest = RequestDigest.of(baseCommit);
+		GitUser other = new GitUser();
+		other.setName(baseCommit.getAuthor().getName());
+		other.setMail("someone.else@eclipse-foundation.org");
+		baseCommit.setAuthor(other);
+		Assertions.assertNotEquals(digest, RequestDigest.of(baseCommit), "Expected the author to change the digest");
+		baseCommit.setAuthor(baseCommit.getCommitter());
+		Assertions.assertEquals(digest, RequestDigest.of(baseCommit));
+	}
+
+	@Test
+	public void digestAllowsMissingFields() {
+		Commit empty = new Commit();
+		Assertions.assertNotNull(RequestDigest.of(SCOPE, Arrays.asList(empty, null)));
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ * 
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.resource;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests for starting and stopping Flight Recorder recordings through the admin
+ * endpoint. Tests run on a JVM with Flight Recorder available.
+ * 
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+class RecordingResourceTest {
+	private static final String AUTH = "Bearer test-token";
+
+	@Test
+	void requiresToken() {
+		given()
+			.when().post("/admin/recording/start")
+			.then()
+				.statusCode(401);
+		given()
+			.header("Authorization", "Bearer wrong-token")
+			.when().post("/admin/recording/start")
+			.then()
+				.statusCode(401);
+	}
+
+	@Test
+	void stopWithoutRecording() {
+		given()
+			.header("Authorization", AUTH)
+			.when().post("/admin/recording/stop")
+			.then()
+				.statusCode(404);
+	}
+
+	@Test
+	void recordAndDownload() {
+		// the requested duration is capped at the configured maximum
+		given()
+			.header("Authorization", AUTH)
+			.queryParam("duration", 100000)
+			.when().post("/admin/recording/start")
+			.then()
+				.statusCode(200)
+				.body("duration", is(300));
+		given()
+			.header("Authorization", AUTH)
+			.when().get("/admin/recording")
+			.then()
+				.statusCode(200)
+				.body("recording", is(true));
+		// only one recording at a time
+		given()
+			.header("Authorization", AUTH)
+			.when().post("/admin/recording/start")
+			.then()
+				.statusCode(409);
+
+		byte[] body = given()
+			.header("Authorization", AUTH)
+			.when().post("/admin/recording/stop")
+			.then()
+				.statusCode(200)
+				.extract().asByteArray();
+		// JFR files start with the 'FLR' magic followed by a null byte
+		Assertions.assertTrue(body.length > 4, "Expected recorded data");
+		Assertions.assertEquals("FLR\0", new String(body, 0, 4, StandardCharsets.US_ASCII));
+	}
+}
@@ -10,22 +10,38 @@
 package org.eclipsefoundation.git.eca.resource;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipsefoundation.git.eca.api.MockAccountsAPI;
+import org.eclipsefoundation.git.eca.event.UserChangedEvent;
 import org.eclipsefoundation.git.eca.model.Commit;
+import org.eclipsefoundation.git.eca.model.EclipseUser;
+import org.eclipsefoundation.git.eca.model.EclipseUser.ECA;
 import org.eclipsefoundation.git.eca.model.GitUser;
 import org.eclipsefoundation.git.eca.model.ValidationRequest;
 import org.eclipsefoundation.git.eca.namespace.APIStatusCode;
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
 import org.eclipsefoundation.git.eca.namespace.ProviderType;
+import org.eclipsefoundation.git.eca.service.CachingService;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 
@@ -40,6 +56,16 @@ import io.restassured.http.ContentType;
 @QuarkusTest
 class ValidationResourceTest {
 
+	@Inject
+	@RestClient
+	MockAccountsAPI accountsAPI;
+	@Inject
+	CachingService cache;
+	@Inject
+	ObjectMapper mapper;
+	@Inject
+	Event<UserChangedEvent> userChanged;
+
 	@Test
 	void validate() throws URISyntaxException {
 		// set up test users
@@ -515,4 +541,653 @@ class ValidationResourceTest {
 					.body("passed", is(false),
 							"errorCount", is(1));
 	}
+
+	@Test
+	void validateBotCommit() throws URISyntaxException {
+		// set up test users
+		GitUser g1 = new GitUser();
+		g1.setName("projbot");
+		g1.setMail("1.bot@eclipse.org");
+
+		GitUser g2 = new GitUser();
+		g2.setName("protobot");
+		g2.setMail("2.BOT@eclipse.org");
+
+		// CASE 1: Bot registered to the project
+		List<Commit> commits = new ArrayList<>();
+		// create sample commits
+		Commit c1 = new Commit();
+		c1.setAuthor(g1);
+		c1.setCommitter(g1);
+		c1.setBody("");
+		c1.setHash("123456789abcdefghijklmnop");
+		c1.setSubject("All of the things");
+		c1.setParents(Collections.emptyList());
+		commits.add(c1);
+
+		ValidationRequest vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(commits);
+
+		// test output w/ assertions
+		// Should be valid as bots have committer-like access to their project
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true),
+							"errorCount", is(0));
+
+		// CASE 2: Bot registered to a different project
+		commits = new ArrayList<>();
+		// create sample commits
+		c1 = new Commit();
+		c1.setAuthor(g2);
+		c1.setCommitter(g2);
+		c1.setBody("");
+		c1.setHash("123456789abcdefghijklmnop");
+		c1.setSubject("All of the things");
+		c1.setParents(Collections.emptyList());
+		commits.add(c1);
+
+		vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(commits);
+
+		// test output w/ assertions
+		// Should be invalid as the bot does not belong to the project
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(403)
+					.body("passed", is(false));
+	}
+
+	@Test
+	void validateDistinctUserLookups() throws URISyntaxException {
+		ValidationRequest vr = createMixedUsersRequest("c044dca1847c94e709601651339f88a5c82e3cd");
+
+		// start with an empty cache so that all users need to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		// test output w/ assertions
+		// Should be valid as both users are committers on the project
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true),
+							"errorCount", is(0));
+		// each distinct mail address should only be looked up once, in a single call
+		Assertions.assertEquals(2, accountsAPI.getRequestedMailCount(),
+				"Expected each distinct mail address to be requested once");
+		Assertions.assertEquals(1, accountsAPI.getBulkCallCount(), "Expected a single bulk upstream call");
+		Assertions.assertEquals(0, accountsAPI.getCallCount(), "Expected no single user upstream calls");
+	}
+
+	@Test
+	void validateBulkLookupFallback() throws URISyntaxException {
+		ValidationRequest vr = createMixedUsersRequest("c044dca1847c94e709601651339f88a5c82e3ce");
+
+		// start with an empty cache so that all users need to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		accountsAPI.setBulkAvailable(false);
+		// test output w/ assertions
+		// Should be valid as both users are committers on the project
+		try {
+			given()
+				.body(vr)
+				.contentType(ContentType.JSON)
+					.when().post("/eca")
+					.then()
+						.statusCode(200)
+						.body("passed", is(true),
+								"errorCount", is(0));
+		} finally {
+			accountsAPI.setBulkAvailable(true);
+		}
+		// each distinct mail address should be looked up individually once
+		Assertions.assertEquals(2, accountsAPI.getCallCount(),
+				"Expected one upstream call per distinct mail address");
+		Assertions.assertEquals(0, accountsAPI.getBulkCallCount(), "Expected no successful bulk upstream calls");
+	}
+
+	@Test
+	void validateBulkLookupUnknownUser() throws URISyntaxException {
+		GitUser g1 = new GitUser();
+		g1.setName("The Wizard");
+		g1.setMail("code.wiz@important.co");
+		GitUser g2 = new GitUser();
+		g2.setName("Nobody");
+		g2.setMail("nobody@anon.com");
+
+		Commit c1 = new Commit();
+		c1.setAuthor(g1);
+		c1.setCommitter(g2);
+		c1.setBody(String.format("Signed-off-by: %s <%s>", g1.getName(), g1.getMail()));
+		c1.setHash("5e1b0c7d2a9f4e6b8c3d");
+		c1.setSubject("Add in feature");
+		c1.setParents(Arrays.asList("46bb69bf6aa4ed26b2bf8c322ae05bef0bcc5c10"));
+
+		ValidationRequest vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(Arrays.asList(c1));
+
+		// start with an empty cache so that all users need to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		// test output w/ assertions
+		// Should fail as the committer has no account
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(403)
+					.body("passed", is(false));
+		// the address missing from the bulk response may be a secondary mail, so is looked up on its own
+		Assertions.assertEquals(1, accountsAPI.getBulkCallCount(), "Expected a single bulk upstream call");
+		Assertions.assertEquals(1, accountsAPI.getCallCount(), "Expected a single user upstream call");
+		Assertions.assertTrue(cache.getIfPresent(CacheRegion.UNKNOWN_USERS, "nobody@anon.com").isPresent(),
+				"Expected the address to be recorded as unknown");
+	}
+
+	@Test
+	void validateBulkLookupNotFound() throws URISyntaxException {
+		GitUser g1 = new GitUser();
+		g1.setName("Nobody");
+		g1.setMail("nobody@anon.com");
+		GitUser g2 = new GitUser();
+		g2.setName("Somebody");
+		g2.setMail("somebody@anon.com");
+
+		Commit c1 = new Commit();
+		c1.setAuthor(g1);
+		c1.setCommitter(g2);
+		c1.setBody(String.format("Signed-off-by: %s <%s>", g1.getName(), g1.getMail()));
+		c1.setHash("9a8b7c6d5e4f3a2b1c0d");
+		c1.setSubject("Add in feature");
+		c1.setParents(Arrays.asList("46bb69bf6aa4ed26b2bf8c322ae05bef0bcc5c10"));
+
+		ValidationRequest vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(Arrays.asList(c1));
+
+		// start with an empty cache so that all users need to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		// test output w/ assertions
+		// Should fail as neither user has an account
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(403)
+					.body("passed", is(false));
+		// a bulk not found is an empty answer, so each address is checked on its own once
+		Assertions.assertEquals(1, accountsAPI.getBulkCallCount(), "Expected a single bulk upstream call");
+		Assertions.assertEquals(2, accountsAPI.getCallCount(), "Expected one upstream call per address");
+	}
+
+	@Test
+	void validateUnknownUserCached() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("newbie@anon.com", "0a1b2c3d4e5f60718293");
+
+		// start with an empty cache so that the user needs to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		// test output w/ assertions
+		// Both attempts should fail as there is no Eclipse account for the user
+		for (int i = 0; i < 2; i++) {
+			given()
+				.body(vr)
+				.contentType(ContentType.JSON)
+					.when().post("/eca")
+					.then()
+						.statusCode(403)
+						.body("passed", is(false));
+		}
+		// the missing account should be remembered after the first lookup
+		Assertions.assertEquals(1, accountsAPI.getCallCount(), "Expected a single upstream call for unknown user");
+	}
+
+	@Test
+	void validateUpstreamErrorNotCached() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("grunt@important.co", "1b2c3d4e5f60718293a4");
+
+		// start with an empty cache so that the user needs to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		accountsAPI.setAvailable(false);
+		// test output w/ assertions
+		// Should fail while the accounts API is unavailable
+		try {
+			given()
+				.body(vr)
+				.contentType(ContentType.JSON)
+					.when().post("/eca")
+					.then()
+						.statusCode(403)
+						.body("passed", is(false));
+		} finally {
+			accountsAPI.setAvailable(true);
+		}
+		// Should pass once the API is available again, as errors are not cached
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true));
+		Assertions.assertEquals(2, accountsAPI.getCallCount(), "Expected the user to be looked up again after an error");
+	}
+
+	@Test
+	void validateVerdictCached() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "2c3d4e5f60718293a4b5");
+
+		// start with an empty cache so that the user needs to be looked up
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true));
+		Assertions.assertEquals(1, accountsAPI.getCallCount());
+
+		// test output w/ assertions
+		// Should be answered from the cached result without looking up the user
+		cache.remove(CacheRegion.USERS, "code.wiz@important.co");
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true));
+		Assertions.assertEquals(1, accountsAPI.getCallCount(), "Expected the cached result to be used");
+
+		// Should check the commit again once the user has changed
+		userChanged.fire(new UserChangedEvent("code.wiz@important.co"));
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true));
+		Assertions.assertEquals(2, accountsAPI.getCallCount(), "Expected the user to be looked up again");
+	}
+
+	@Test
+	void validateVerdictAccountChanged() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "7c2d4e9a1b3f5a6d8e0c");
+
+		cache.removeAll();
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true));
+
+		// load the account again w/o a change event, as when the cache entry expires
+		EclipseUser unsigned = new EclipseUser();
+		unsigned.setMail("code.wiz@important.co");
+		unsigned.setName("wizz_anon");
+		unsigned.setEca(new ECA());
+		cache.put(CacheRegion.USERS, "code.wiz@important.co", Collections.singletonList(unsigned));
+		cache.getCacheKeys(CacheRegion.RESPONSES).forEach(k -> cache.remove(CacheRegion.RESPONSES, k));
+
+		// test output w/ assertions
+		// Should not use the cached result as the account has changed
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(403)
+					.body("passed", is(false));
+		cache.removeAll();
+	}
+
+	@Test
+	void validateReplay() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "3d4e5f60718293a4b5c6");
+
+		// start with an empty cache so that the request is validated
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		String etag = given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true))
+					.extract().header("ETag");
+		Assertions.assertNotNull(etag, "Expected an ETag for the request");
+
+		// test output w/ assertions
+		// Should replay the result for an identical request
+		cache.getCacheKeys(CacheRegion.VERDICTS).forEach(k -> cache.remove(CacheRegion.VERDICTS, k));
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.header("ETag", etag)
+					.body("passed", is(true));
+		// Should keep replaying the result when an unrelated user changes
+		userChanged.fire(new UserChangedEvent("grunt@important.co"));
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+			.header("If-None-Match", etag)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.header("ETag", etag)
+					.body("passed", is(true));
+		Assertions.assertEquals(1, accountsAPI.getCallCount(), "Expected a single validation of the request");
+
+		// Should validate the request again once its user has changed
+		userChanged.fire(new UserChangedEvent("code.wiz@important.co"));
+		String changed = given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.body("passed", is(true))
+					.extract().header("ETag");
+		Assertions.assertNotEquals(etag, changed, "Expected a new ETag once the user has changed");
+	}
+
+	@Test
+	void validateCommitStatus() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "4e5f60718293a4b5c6d7");
+		String path = "/eca/status/github/eclipsefdn/sample/4e5f60718293a4b5c6d7";
+
+		// start with an empty cache so that the commit is unknown
+		cache.removeAll();
+		accountsAPI.resetCallCount();
+		// test output w/ assertions
+		// Should be unknown before the commit has been validated
+		given()
+			.when().get(path)
+			.then()
+				.statusCode(404);
+		Assertions.assertEquals(0, accountsAPI.getCallCount(), "Expected no upstream calls for unknown commits");
+
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200);
+		// Should return the stored result once validated
+		String etag = given()
+			.when().get(path)
+			.then()
+				.statusCode(200)
+				.header("Cache-Control", containsString("max-age="))
+				.body("hash", is("4e5f60718293a4b5c6d7"),
+						"passed", is(true))
+				.extract().header("ETag");
+		Assertions.assertNotNull(etag, "Expected an ETag for the result");
+		// Should not return the result again to a client holding it
+		given()
+			.header("If-None-Match", etag)
+			.when().get(path)
+			.then()
+				.statusCode(304);
+		// Should be unknown for other repos and providers
+		given()
+			.when().get("/eca/status/gitlab/eclipsefdn/sample/4e5f60718293a4b5c6d7")
+			.then()
+				.statusCode(404);
+		given()
+			.when().get("/eca/status/github/eclipsefdn/other/4e5f60718293a4b5c6d7")
+			.then()
+				.statusCode(404);
+	}
+
+	@Test
+	void validateServerTiming() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "5f60718293a4b5c6d7e8");
+		// start with an empty cache so that the commit is checked
+		cache.removeAll();
+
+		// test output w/ assertions
+		// Should report the time spent in each stage of the validation
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200)
+					.header(ValidationResource.SERVER_TIMING_HEADER, containsString("identities;"))
+					.header(ValidationResource.SERVER_TIMING_HEADER, containsString("checks;"))
+					.header(ValidationResource.SERVER_TIMING_HEADER, containsString("total;"));
+	}
+
+	@Test
+	void validateMetrics() throws URISyntaxException {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "60718293a4b5c6d7e8f9");
+		given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(200);
+
+		// latency, size and cache metrics should be available for scraping
+		given()
+			.accept(ContentType.TEXT)
+				.when().get("/metrics/application")
+				.then()
+					.statusCode(200)
+					.body(containsString("application_validation_time_seconds_count"),
+							containsString("application_validation_commits_count"),
+							containsString("application_validation_inflight_current"),
+							containsString("application_cache_hits_total"),
+							containsString("application_cache_misses_total"));
+	}
+
+	@Test
+	void validateStream() throws Exception {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "718293a4b5c6d7e8f90a");
+		Commit c1 = vr.getCommits().get(0);
+		Commit c2 = new Commit();
+		c2.setAuthor(c1.getAuthor());
+		c2.setCommitter(c1.getCommitter());
+		c2.setBody(c1.getBody());
+		c2.setHash("abcdefghijklmnop123456789");
+		c2.setSubject("Some more of the things");
+		c2.setParents(Arrays.asList(c1.getHash()));
+
+		// header record followed by one record per commit
+		StringBuilder body = new StringBuilder();
+		body.append("{\"repoUrl\":\"").append(vr.getRepoUrl()).append("\",\"provider\":\"github\"}\n");
+		body.append(mapper.writeValueAsString(c1)).append('\n');
+		body.append(mapper.writeValueAsString(c2)).append('\n');
+
+		// test output w/ assertions
+		// Should have one result per commit in order, followed by a summary
+		String out = given()
+			.body(body.toString().getBytes(StandardCharsets.UTF_8))
+			.contentType(ValidationResource.NDJSON)
+				.when().post("/eca/stream")
+				.then()
+					.statusCode(200)
+					.extract().asString();
+		String[] records = out.split("\n");
+		Assertions.assertEquals(3, records.length);
+		Assertions.assertEquals(c1.getHash(), mapper.readTree(records[0]).get("hash").asText());
+		Assertions.assertTrue(mapper.readTree(records[0]).get("passed").asBoolean());
+		Assertions.assertEquals(c2.getHash(), mapper.readTree(records[1]).get("hash").asText());
+		JsonNode summary = mapper.readTree(records[2]);
+		Assertions.assertTrue(summary.get("passed").asBoolean());
+		Assertions.assertEquals(2, summary.get("commitCount").asInt());
+		Assertions.assertEquals(0, summary.get("errorCount").asInt());
+	}
+
+	@Test
+	void validateStreamMissingHeader() {
+		// commits without a header record cannot be validated
+		given()
+			.body("{\"hash\":\"123456789abcdefghijklmnop\"}\n".getBytes(StandardCharsets.UTF_8))
+			.contentType(ValidationResource.NDJSON)
+				.when().post("/eca/stream")
+				.then()
+					.statusCode(400);
+	}
+
+	@Test
+	void validateAsyncJob() throws Exception {
+		ValidationRequest vr = createSingleUserRequest("code.wiz@important.co", "8293a4b5c6d7e8f90a1b");
+		// go over the async threshold set for tests
+		List<Commit> commits = new ArrayList<>(vr.getCommits());
+		for (int i = 0; i < 5; i++) {
+			Commit c = new Commit();
+			c.setAuthor(commits.get(0).getAuthor());
+			c.setCommitter(commits.get(0).getCommitter());
+			c.setBody(commits.get(0).getBody());
+			c.setHash("d044dca1847c94e709601651339f88a5c82e3cc" + i);
+			c.setSubject("All of the things, again");
+			c.setParents(Arrays.asList(commits.get(commits.size() - 1).getHash()));
+			commits.add(c);
+		}
+		vr.setCommits(commits);
+
+		// test output w/ assertions
+		// Should be accepted as a job, which completes in the background
+		String location = given()
+			.body(vr)
+			.contentType(ContentType.JSON)
+				.when().post("/eca")
+				.then()
+					.statusCode(202)
+					.body("commitCount", is(6))
+					.extract().header("Location");
+		Assertions.assertNotNull(location);
+		String id = location.substring(location.lastIndexOf('/') + 1);
+		String status = null;
+		for (int i = 0; i < 100 && !"complete".equals(status); i++) {
+			Thread.sleep(50);
+			status = given().when().get("/eca/jobs/" + id).then().statusCode(200).extract().path("status");
+		}
+		given()
+			.when().get("/eca/jobs/" + id)
+			.then()
+				.statusCode(200)
+				.body("status", is("complete"))
+				.body("processedCount", is(6))
+				.body("result.passed", is(true))
+				.body("result.errorCount", is(0));
+	}
+
+	@Test
+	void validateAsyncJobMissing() {
+		given()
+			.when().get("/eca/jobs/not-a-job")
+			.then()
+				.statusCode(404);
+	}
+
+	/**
+	 * Creates a request with commits mixing two committers as authors and
+	 * committers, using different casing for the same mail addresses.
+	 * 
+	 * @param hashPrefix the prefix of the commit hashes, unique to the test so that
+	 *                   cached results are not shared between tests
+	 * @return the validation request
+	 * @throws URISyntaxException if the repo URL is invalid
+	 */
+	private ValidationRequest createMixedUsersRequest(String hashPrefix) throws URISyntaxException {
+		GitUser g1 = new GitUser();
+		g1.setName("The Wizard");
+		g1.setMail("code.wiz@important.co");
+		GitUser g1Upper = new GitUser();
+		g1Upper.setName("The Wizard");
+		g1Upper.setMail("Code.Wiz@Important.co");
+
+		GitUser g2 = new GitUser();
+		g2.setName("Grunts McGee");
+		g2.setMail("grunt@important.co");
+		GitUser g2Upper = new GitUser();
+		g2Upper.setName("Grunts McGee");
+		g2Upper.setMail("GRUNT@important.co");
+
+		// create sample commits, mixing authors and committers
+		List<Commit> commits = new ArrayList<>();
+		GitUser[][] users = new GitUser[][] { { g1, g1 }, { g1Upper, g2 }, { g2Upper, g1 }, { g2, g2Upper } };
+		for (int i = 0; i < users.length; i++) {
+			Commit c = new Commit();
+			c.setAuthor(users[i][0]);
+			c.setCommitter(users[i][1]);
+			c.setBody(String.format("Signed-off-by: %s <%s>", users[i][0].getName(), users[i][0].getMail()));
+			c.setHash(hashPrefix + i);
+			c.setSubject("Add in feature");
+			c.setParents(Arrays.asList("46bb69bf6aa4ed26b2bf8c322ae05bef0bcc5c10"));
+			commits.add(c);
+		}
+
+		ValidationRequest vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(commits);
+		return vr;
+	}
+
+	/**
+	 * Creates a request with a single signed off commit, authored and committed by
+	 * the user with the given mail address.
+	 * 
+	 * @param mail the mail address of the user
+	 * @param hash the hash of the commit, unique to the test so that cached
+	 *             results are not shared between tests
+	 * @return the validation request
+	 * @throws URISyntaxException if the repo URL is invalid
+	 */
+	private ValidationRequest createSingleUserRequest(String mail, String hash) throws URISyntaxException {
+		GitUser g1 = new GitUser();
+		g1.setName("Grunts McGee");
+		g1.setMail(mail);
+
+		List<Commit> commits = new ArrayList<>();
+		Commit c1 = new Commit();
+		c1.setAuthor(g1);
+		c1.setCommitter(g1);
+		c1.setBody(String.format("Signed-off-by: %s <%s>", g1.getName(), g1.getMail()));
+		c1.setHash(hash);
+		c1.setSubject("All of the things");
+		c1.setParents(Arrays.asList("46bb69bf6aa4ed26b2bf8c322ae05bef0bcc5c10"));
+		commits.add(c1);
+
+		ValidationRequest vr = new ValidationRequest();
+		vr.setProvider(ProviderType.GITHUB);
+		vr.setRepoUrl(new URI("http://www.github.com/eclipsefdn/sample"));
+		vr.setCommits(commits);
+		return vr;
+	}
 }
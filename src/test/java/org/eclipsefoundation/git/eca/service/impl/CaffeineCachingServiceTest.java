@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests related to the {@linkplain CaffeineCachingService} class, including
+ * multithreaded access to the same keys and resistance to scans.
+ *
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class CaffeineCachingServiceTest {
+	private static final CacheRegion<String> STRINGS = new CacheRegion<>("test-strings", String.class);
+	private static final CacheRegion<Integer> NUMBERS = new CacheRegion<>("test-numbers", Integer.class);
+	private static final CacheRegion<String> SMALL = new CacheRegion<>("test-small", String.class);
+	private static final CacheRegion<String> STALE = new CacheRegion<>("test-stale", String.class);
+	private static final CacheRegion<String> AHEAD = new CacheRegion<>("test-ahead", String.class);
+	private static final CacheRegion<String> HARD = new CacheRegion<>("test-hard", String.class);
+	private static final CacheRegion<String> SCAN = new CacheRegion<>("test-scan", String.class);
+
+	@Inject
+	CaffeineCachingService cache;
+
+	@AfterEach
+	public void cleanup() {
+		cache.removeAll();
+	}
+
+	@Test
+	public void concurrentGetLoadsOncePerKey() throws Exception {
+		int threads = 16;
+		int keys = 500;
+		Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				results.add(pool.submit(() -> {
+					List<Integer> order = new ArrayList<>();
+					for (int i = 0; i < keys; i++) {
+						order.add(i);
+					}
+					Collections.shuffle(order);
+					start.await();
+					int mismatches = 0;
+					for (int i : order) {
+						String key = "key-" + i;
+						Optional<String> value = cache.get(STRINGS, key, () -> {
+							loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+							// widen the window in which concurrent loads could happen
+							Thread.sleep(1);
+							return "value-" + i;
+						});
+						if (!value.isPresent() || !value.get().equals("value-" + i)) {
+							mismatches++;
+						}
+					}
+					return mismatches;
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> result : results) {
+				Assertions.assertEquals(0, result.get(60, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		// no duplicate loads, and no lost entries
+		Assertions.assertEquals(keys, loads.size());
+		loads.forEach((key, count) -> Assertions.assertEquals(1, count.get(),
+				String.format("Expected a single load for key '%s'", key)));
+		Assertions.assertEquals(keys, cache.getCacheKeys(STRINGS).size());
+		for (int i = 0; i < keys; i++) {
+			Assertions.assertEquals(Optional.of("value-" + i), cache.getIfPresent(STRINGS, "key-" + i));
+		}
+	}
+
+	@Test
+	public void regionsAreIsolated() {
+		cache.get(STRINGS, "shared", () -> "value");
+		cache.get(NUMBERS, "shared", () -> 1);
+
+		Assertions.assertEquals(Optional.of("value"), cache.getIfPresent(STRINGS, "shared"));
+		Assertions.assertEquals(Optional.of(1), cache.getIfPresent(NUMBERS, "shared"));
+
+		cache.remove(STRINGS, "shared");
+		Assertions.assertFalse(cache.getIfPresent(STRINGS, "shared").isPresent());
+		Assertions.assertTrue(cache.getIfPresent(NUMBERS, "shared").isPresent());
+	}
+
+	@Test
+	public void regionUsesConfiguredSize() {
+		for (int i = 0; i < 100; i++) {
+			int current = i;
+			cache.get(SMALL, "key-" + i, () -> "value-" + current);
+		}
+		Assertions.assertTrue(cache.getCacheKeys(SMALL).size() <= 10);
+		Assertions.assertEquals(0, cache.getCacheKeys(STRINGS).size());
+	}
+
+	@Test
+	public void scanDoesNotEvictFrequentEntries() {
+		// fill the region so that access frequencies are tracked
+		for (int i = 0; i < 100; i++) {
+			cache.get(SCAN, "filler-" + i, () -> "filler");
+		}
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 10; i++) {
+				cache.get(SCAN, "hot-" + i, () -> "hot");
+			}
+		}
+		// one-off lookups of many rarely seen keys
+		for (int i = 0; i < 1000; i++) {
+			cache.get(SCAN, "cold-" + i, () -> "cold");
+		}
+		for (int i = 0; i < 10; i++) {
+			Assertions.assertTrue(cache.getIfPresent(SCAN, "hot-" + i).isPresent(),
+					String.format("Expected frequently used key 'hot-%d' to survive the scan", i));
+		}
+	}
+
+	@Test
+	public void regionUsesConfiguredTTL() {
+		long before = System.currentTimeMillis();
+		cache.get(SMALL, "key", () -> "value");
+
+		Assertions.assertEquals(60, cache.getMaxAge(SMALL));
+		Optional<Long> expiration = cache.getExpiration(SMALL, "key");
+		Assertions.assertTrue(expiration.isPresent());
+		Assertions.assertTrue(expiration.get() >= before + TimeUnit.SECONDS.toMillis(60));
+		Assertions.assertFalse(cache.getExpiration(SMALL, "missing").isPresent());
+	}
+
+	@Test
+	public void staleValueServedWhileRefreshing() throws Exception {
+		cache.get(STALE, "key", () -> "old");
+		Thread.sleep(1100);
+
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Callable<String> slowLoad = () -> {
+			loads.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return "new";
+		};
+		// stale value is served right away, while a single load refreshes it
+		Assertions.assertEquals(Optional.of("old"), cache.get(STALE, "key", slowLoad));
+		Assertions.assertEquals(Optional.of("old"), cache.get(STALE, "key", slowLoad));
+		release.countDown();
+		awaitValue(STALE, "key", "new");
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void valueRefreshedAhead() throws InterruptedException {
+		cache.get(AHEAD, "key", () -> "old");
+
+		Assertions.assertEquals(Optional.of("old"), cache.getIfPresent(AHEAD, "key", () -> "new"));
+		awaitValue(AHEAD, "key", "new");
+	}
+
+	@Test
+	public void failedRefreshKeepsValue() throws InterruptedException {
+		cache.get(AHEAD, "key", () -> "old");
+
+		Assertions.assertEquals(Optional.of("old"), cache.getIfPresent(AHEAD, "key", () -> {
+			throw new IllegalStateException("Expected failure");
+		}));
+		Thread.sleep(100);
+		Assertions.assertEquals(Optional.of("old"), cache.getIfPresent(AHEAD, "key"));
+		// the next access tries again
+		cache.getIfPresent(AHEAD, "key", () -> "new");
+		awaitValue(AHEAD, "key", "new");
+	}
+
+	@Test
+	public void valuePastMaxStalenessIsLoaded() throws InterruptedException {
+		cache.get(HARD, "key", () -> "old");
+		Thread.sleep(2100);
+
+		Assertions.assertFalse(cache.getIfPresent(HARD, "key").isPresent());
+		Assertions.assertEquals(Optional.of("new"), cache.get(HARD, "key", () -> "new"));
+	}
+
+	@Test
+	public void failedLoadsAreNotCached() {
+		Assertions.assertFalse(cache.get(STRINGS, "null", () -> null).isPresent());
+		Assertions.assertFalse(cache.get(STRINGS, "error", () -> {
+			throw new IllegalStateException("Expected failure");
+		}).isPresent());
+
+		Assertions.assertEquals(Optional.of("value"), cache.get(STRINGS, "null", () -> "value"));
+		Assertions.assertEquals(Optional.of("value"), cache.get(STRINGS, "error", () -> "value"));
+	}
+
+	@Test
+	public void regionNameIsBoundToType() {
+		cache.get(STRINGS, "key", () -> "value");
+		CacheRegion<Integer> conflicting = new CacheRegion<>(STRINGS.getName(), Integer.class);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> cache.getIfPresent(conflicting, "key"));
+	}
+
+	/**
+	 * Waits for the cached value of the given key to become the expected value,
+	 * failing after a few seconds.
+	 */
+	private void awaitValue(CacheRegion<String> region, String key, String expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while (!Optional.of(expected).equals(cache.getIfPresent(region, key))
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assertions.assertEquals(Optional.of(expected), cache.getIfPresent(region, key));
+	}
+}
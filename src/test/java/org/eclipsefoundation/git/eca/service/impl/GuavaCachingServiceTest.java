@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright (C) 2020 Eclipse Foundation
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ******************************************************************************/
+package org.eclipsefoundation.git.eca.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipsefoundation.git.eca.namespace.CacheRegion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Tests related to the {@linkplain GuavaCachingService} class, including
+ * multithreaded access to the same keys through the synchronous, asynchronous
+ * and bulk lookups.
+ *
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class GuavaCachingServiceTest {
+	private static final CacheRegion<String> STRINGS = new CacheRegion<>("test-strings", String.class);
+	private static final CacheRegion<Integer> NUMBERS = new CacheRegion<>("test-numbers", Integer.class);
+	private static final CacheRegion<String> SMALL = new CacheRegion<>("test-small", String.class);
+	private static final CacheRegion<String> STALE = new CacheRegion<>("test-stale", String.class);
+	private static final CacheRegion<String> AHEAD = new CacheRegion<>("test-ahead", String.class);
+	private static final CacheRegion<String> HARD = new CacheRegion<>("test-hard", String.class);
+
+	@Inject
+	GuavaCachingService cache;
+	@Inject
+	MetricRegistry registry;
+
+	@AfterEach
+	public void cleanup() {
+		cache.removeAll();
+	}
+
+	@Test
+	public void concurrentGetLoadsOncePerKey() throws Exception {
+		int threads = 16;
+		int keys = 500;
+		Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				results.add(pool.submit(() -> {
+					List<Integer> order = new ArrayList<>();
+					for (int i = 0; i < keys; i++) {
+						order.add(i);
+					}
+					Collections.shuffle(order);
+					start.await();
+					int mismatches = 0;
+					for (int i : order) {
+						String key = "key-" + i;
+						Optional<String> value = cache.get(STRINGS, key, () -> {
+							loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+							// widen the window in which concurrent loads could happen
+							Thread.sleep(1);
+							return "value-" + i;
+						});
+						if (!value.isPresent() || !value.get().equals("value-" + i)) {
+							mismatches++;
+						}
+					}
+					return mismatches;
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> result : results) {
+				Assertions.assertEquals(0, result.get(60, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		// no duplicate loads, and no lost entries
+		Assertions.assertEquals(keys, loads.size());
+		loads.forEach((key, count) -> Assertions.assertEquals(1, count.get(),
+				String.format("Expected a single load for key '%s'", key)));
+		Assertions.assertEquals(keys, cache.getCacheKeys(STRINGS).size());
+		for (int i = 0; i < keys; i++) {
+			Assertions.assertEquals(Optional.of("value-" + i), cache.getIfPresent(STRINGS, "key-" + i));
+		}
+	}
+
+	@Test
+	public void getAllLoadsMissingKeysInOneBatch() {
+		cache.get(STRINGS, "a", () -> "cached");
+		List<Set<String>> batches = new ArrayList<>();
+
+		Map<String, String> out = cache.getAll(STRINGS, Arrays.asList("a", "b", "c", "missing", "b"), keys -> {
+			batches.add(new HashSet<>(keys));
+			Map<String, String> loaded = new HashMap<>();
+			keys.stream().filter(key -> !key.equals("missing")).forEach(key -> loaded.put(key, "loaded-" + key));
+			return loaded;
+		});
+
+		Assertions.assertEquals(1, batches.size(), "Expected a single bulk load");
+		Assertions.assertEquals(new HashSet<>(Arrays.asList("b", "c", "missing")), batches.get(0));
+		Assertions.assertEquals("cached", out.get("a"));
+		Assertions.assertEquals("loaded-b", out.get("b"));
+		Assertions.assertEquals("loaded-c", out.get("c"));
+		Assertions.assertFalse(out.containsKey("missing"));
+		Assertions.assertEquals(Optional.of("loaded-b"), cache.getIfPresent(STRINGS, "b"));
+		Assertions.assertFalse(cache.getIfPresent(STRINGS, "missing").isPresent());
+	}
+
+	@Test
+	public void getAllLoadsExpiredKeys() throws InterruptedException {
+		cache.get(STALE, "a", () -> "old");
+		cache.get(STALE, "b", () -> "old");
+		Thread.sleep(1100);
+		cache.get(STALE, "b", () -> "fresh");
+		awaitValue(STALE, "b", "fresh");
+		List<Set<String>> batches = new ArrayList<>();
+
+		Map<String, String> out = cache.getAll(STALE, Arrays.asList("a", "b"), keys -> {
+			batches.add(new HashSet<>(keys));
+			return Collections.singletonMap("a", "new");
+		});
+
+		Assertions.assertEquals(Collections.singletonList(Collections.singleton("a")), batches);
+		Assertions.assertEquals("new", out.get("a"));
+		Assertions.assertEquals("fresh", out.get("b"));
+	}
+
+	@Test
+	public void hitRatioCountsLookups() {
+		CacheRegion<String> region = new CacheRegion<>("test-ratio", String.class);
+		cache.get(region, "key", () -> "value");
+		cache.get(region, "key", () -> "value");
+		cache.getExpiration(region, "key");
+
+		Gauge<?> ratio = registry.getGauges()
+				.get(new MetricID("cache.hit.ratio", new Tag("provider", "guava"), new Tag("region", "test-ratio")));
+		Assertions.assertEquals(0.5, ratio.getValue());
+	}
+
+	@Test
+	public void putReplacesValue() {
+		cache.get(STRINGS, "key", () -> "loaded");
+		cache.put(STRINGS, "key", "stored");
+
+		Assertions.assertEquals(Optional.of("stored"), cache.getIfPresent(STRINGS, "key"));
+		Assertions.assertEquals(Optional.of("stored"), cache.get(STRINGS, "key", () -> "loaded again"));
+	}
+
+	@Test
+	public void getAsyncSharesLoadWithConcurrentCallers() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		CompletableFuture<Optional<String>> first = cache.getAsync(STRINGS, "key", () -> {
+			loads.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return "value";
+		}).toCompletableFuture();
+		Assertions.assertFalse(first.isDone());
+
+		// synchronous and bulk callers for the same key wait on the pending load
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<Optional<String>> sync = pool.submit(() -> cache.get(STRINGS, "key", () -> {
+				loads.incrementAndGet();
+				return "other";
+			}));
+			Future<Map<String, String>> bulk = pool.submit(() -> cache.getAll(STRINGS,
+					Collections.singletonList("key"), keys -> {
+						loads.incrementAndGet();
+						return Collections.singletonMap("key", "other");
+					}));
+			CompletableFuture<Optional<String>> second = cache.getAsync(STRINGS, "key", () -> {
+				loads.incrementAndGet();
+				return "other";
+			}).toCompletableFuture();
+			release.countDown();
+
+			Assertions.assertEquals(Optional.of("value"), first.get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals(Optional.of("value"), second.get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals(Optional.of("value"), sync.get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals("value", bulk.get(5, TimeUnit.SECONDS).get("key"));
+		} finally {
+			pool.shutdownNow();
+		}
+		Assertions.assertEquals(1, loads.get(), "Expected a single load for concurrent callers");
+	}
+
+	@Test
+	public void concurrentGetAllLoadsOncePerKey() throws Exception {
+		int threads = 8;
+		int keys = 200;
+		Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Map<String, String>>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int offset = t * 10;
+				results.add(pool.submit(() -> {
+					// overlapping windows of keys for each thread
+					List<String> requested = new ArrayList<>();
+					for (int i = offset; i < offset + keys / 2; i++) {
+						requested.add("key-" + (i % keys));
+					}
+					start.await();
+					return cache.getAll(STRINGS, requested, missing -> {
+						Map<String, String> loaded = new HashMap<>();
+						for (String key : missing) {
+							loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+							loaded.put(key, "value-" + key);
+						}
+						return loaded;
+					});
+				}));
+			}
+			start.countDown();
+			for (Future<Map<String, String>> result : results) {
+				Map<String, String> out = result.get(60, TimeUnit.SECONDS);
+				Assertions.assertEquals(keys / 2, out.size());
+				out.forEach((key, value) -> Assertions.assertEquals("value-" + key, value));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		loads.forEach((key, count) -> Assertions.assertEquals(1, count.get(),
+				String.format("Expected a single load for key '%s'", key)));
+	}
+
+	@Test
+	public void regionsAreIsolated() {
+		cache.get(STRINGS, "shared", () -> "value");
+		cache.get(NUMBERS, "shared", () -> 1);
+
+		Assertions.assertEquals(Optional.of("value"), cache.getIfPresent(STRINGS, "shared"));
+		Assertions.assertEquals(Optional.of(1), cache.getIfPresent(NUMBERS, "shared"));
+
+		cache.remove(STRINGS, "shared");
+		Assertions.assertFalse(cache.getIfPresent(STRINGS, "shared").isPresent());
+		Assertions.assertTrue(cache.getIfPresent(NUMBERS, "shared").isPresent());
+	}
+
+	@Test
+	public void regionUsesConfiguredSize() {
+		for (int i = 0; i < 100; i++) {
+			int current = i;
+			cache.get(SMALL, "key-" + i, () -> "value-" + current);
+		}
+		Assertions.assertTrue(cache.getCacheKeys(SMALL).size() <= 10);
+		Assertions.assertEquals(0, cache.getCacheKeys(STRINGS).size());
+	}
+
+	@Test
+	public void regionUsesConfiguredTTL() {
+		long before = System.currentTimeMillis();
+		cache.get(SMALL, "key", () -> "value");
+
+		Assertions.assertEquals(60, cache.getMaxAge(SMALL));
+		Optional<Long> expiration = cache.getExpiration(SMALL, "key");
+		Assertions.assertTrue(expiration.isPresent());
+		Assertions.assertTrue(expiration.get() >= before + TimeUnit.SECONDS.toMillis(60));
+		Assertions.assertFalse(cache.getExpiration(SMALL, "missing").isPresent());
+	}
+
+	@Test
+	public void staleValueServedWhileRefreshing() throws Exception {
+		cache.get(STALE, "key", () -> "old");
+		Thread.sleep(1100);
+
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Callable<String> slowLoad = () -> {
+			loads.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return "new";
+		};
+		// stale value is served right away, while a single load refreshes it
+		Assertions.assertEquals(Optional.of("old"), cache.get(STALE, "key", slowLoad));
+		Assertions.assertEquals(Optional.of("old"), cache.get(STALE, "key", slowLoad));
+		release.countDown();
+		awaitValue(STALE, "key", "new");
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void valueRefreshedAhead() throws InterruptedException {
+		cache.get(AHEAD, "key", () -> "old");
+
+		Assertions.assertEquals(Optional.of("old"), cache.getIfPresent(AHEAD, "key", () -> "new"));
+		awaitValue(AHEAD, "key", "new");
+	}
+
+	@Test
+	public void failedRefreshKeepsValue() throws InterruptedException {
+		cache.get(AHEAD, "key", () -> "old");
+
+		Assertions.assertEquals(Optional.of("old"), cache.getIfPresent(AHEAD, "key", () -> {
+			throw new IllegalStateException("Expected failure");
+		}));
+		Thread.sleep(100);
+		Assertions.assertEquals(Optional.of("old"), cache.getIfPresent(AHEAD, "key"));
+		// the next access tries again
+		cache.getIfPresent(AHEAD, "key", () -> "new");
+		awaitValue(AHEAD, "key", "new");
+	}
+
+	@Test
+	public void valuePastMaxStalenessIsLoaded() throws InterruptedException {
+		cache.get(HARD, "key", () -> "old");
+		Thread.sleep(2100);
+
+		Assertions.assertFalse(cache.getIfPresent(HARD, "key").isPresent());
+		Assertions.assertEquals(Optional.of("new"), cache.get(HARD, "key", () -> "new"));
+	}
+
+	@Test
+	public void failedLoadsAreNotCached() {
+		Assertions.assertFalse(cache.get(STRINGS, "null", () -> null).isPresent());
+		Assertions.assertFalse(cache.get(STRINGS, "error", () -> {
+			throw new IllegalStateException("Expected failure");
+		}).isPresent());
+
+		Assertions.assertEquals(Optional.of("value"), cache.get(STRINGS, "null", () -> "value"));
+		Assertions.assertEquals(Optional.of("value"), cache.get(STRINGS, "error", () -> "value"));
+	}
+
+	@Test
+	public void failedLoadsReleaseWaitingCallers() {
+		Assertions.assertThrows(AssertionError.class, () -> cache.get(STRINGS, "error", () -> {
+			throw new AssertionError("Expected failure");
+		}));
+		Assertions.assertThrows(AssertionError.class,
+				() -> cache.getAll(STRINGS, Arrays.asList("error"), keys -> {
+					throw new AssertionError("Expected failure");
+				}));
+		// no load is left in flight, so the next caller isn't blocked
+		Assertions.assertEquals(Optional.of("value"), cache.get(STRINGS, "error", () -> "value"));
+	}
+
+	@Test
+	public void regionNameIsBoundToType() {
+		cache.get(STRINGS, "key", () -> "value");
+		CacheRegion<Integer> conflicting = new CacheRegion<>(STRINGS.getName(), Integer.class);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> cache.getIfPresent(conflicting, "key"));
+	}
+
+	/**
+	 * Waits for the cached value of the given key to become the expected value,
+	 * failing after a few seconds.
+	 */
+	private void awaitValue(CacheRegion<String> region, String key, String expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while (!Optional.of(expected).equals(cache.getIfPresent(region, key))
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assertions.assertEquals(Optional.of(expected), cache.getIfPresent(region, key));
+	}
+}